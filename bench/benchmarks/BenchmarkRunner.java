@@ -0,0 +1,32 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point for the benchmark suite.
+ * Runs every benchmark with the gc profiler attached so the results include
+ * the allocation rate next to the throughput.
+ */
+public class BenchmarkRunner {
+
+    // Private no-arg constructor to prevent attempts to instantiate this class.
+    private BenchmarkRunner() {}
+
+    /**
+     * Runs the benchmarks.
+     * @param args optional regular expression selecting which benchmarks to run
+     * @throws RunnerException if JMH fails to run the benchmarks
+     */
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : WikiGameBenchmark.class.getSimpleName();
+        Options options = new OptionsBuilder()
+            .include(include)
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+}
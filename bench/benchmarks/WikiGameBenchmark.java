@@ -0,0 +1,242 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for the hot paths of The Wiki Game, on the packed keys the
+ * game plays with: expanding a selection to the next column, directly and
+ * through the expansion cache, and matching the two innermost columns, both
+ * from scratch and incrementally as the pipeline does after a selection.
+ * Run {@link BenchmarkRunner} to get ops/s together with the allocation rate
+ * reported by the gc profiler.
+ * <p>
+ * JMH does not support benchmarks in the default package, and the game classes
+ * live there, so they are bound through method handles. The handles are static
+ * final, which lets the JIT inline the calls as if they were direct.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WikiGameBenchmark {
+
+    // Seed the expansions are drawn from, as a challenge's seed would be
+    private static final long SEED = 42;
+
+    // One right frontier item in this many is replaced by a left one, so the frontiers share meeting strings
+    private static final int SHARED_STRIDE = 16;
+
+    private static final MethodHandle ENCODE;
+    private static final MethodHandle APPEND_RANDOM_KEYS;
+    private static final MethodHandle PREPEND_RANDOM_KEYS;
+    private static final MethodHandle NEW_EXPANSION_CACHE;
+    private static final MethodHandle EXPAND;
+    private static final MethodHandle COLUMN_KEYS;
+    private static final MethodHandle CHILDREN_PER_BASE;
+    private static final MethodHandle NEW_MATCH_ENGINE;
+    private static final MethodHandle SET_LEFT;
+    private static final MethodHandle SET_RIGHT;
+    private static final MethodHandle ADD_RIGHT;
+    private static final MethodHandle REMOVE_RIGHT;
+    private static final MethodHandle FIND_MATCHES;
+    private static final MethodHandle FIND_FIRST_MATCH;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> packedKey = Class.forName("PackedKey");
+            Class<?> listCreator = Class.forName("ListCreator");
+            Class<?> expansionCache = Class.forName("ExpansionCache");
+            Class<?> keyColumn = Class.forName("KeyColumn");
+            Class<?> matchEngine = Class.forName("MatchEngine");
+            MethodType expandKeys = MethodType.methodType(long[].class, long[].class, int.class, int.class,
+                long.class);
+            MethodType setFrontier = MethodType.methodType(void.class, long[].class, int.class);
+            MethodType changeFrontier = MethodType.methodType(void.class, long[].class, int.class, int.class);
+
+            ENCODE = lookup.findStatic(packedKey, "encode", MethodType.methodType(long.class, String.class));
+            APPEND_RANDOM_KEYS = lookup.findStatic(listCreator, "appendRandomKeys", expandKeys);
+            PREPEND_RANDOM_KEYS = lookup.findStatic(listCreator, "prependRandomKeys", expandKeys);
+            NEW_EXPANSION_CACHE = lookup.findConstructor(expansionCache, MethodType.methodType(void.class))
+                .asType(MethodType.methodType(Object.class));
+            EXPAND = lookup.findVirtual(expansionCache, "expand", MethodType.methodType(keyColumn, long[].class,
+                    int.class, int.class, boolean.class, long.class))
+                .asType(MethodType.methodType(Object.class, Object.class, long[].class, int.class, int.class,
+                    boolean.class, long.class));
+            COLUMN_KEYS = lookup.findVirtual(keyColumn, "keys", MethodType.methodType(long[].class))
+                .asType(MethodType.methodType(long[].class, Object.class));
+            CHILDREN_PER_BASE = lookup.findVirtual(keyColumn, "childrenPerBase", MethodType.methodType(int.class))
+                .asType(MethodType.methodType(int.class, Object.class));
+            NEW_MATCH_ENGINE = lookup.findConstructor(matchEngine, MethodType.methodType(void.class))
+                .asType(MethodType.methodType(Object.class));
+            SET_LEFT = lookup.findVirtual(matchEngine, "setLeft", setFrontier)
+                .asType(MethodType.methodType(void.class, Object.class, long[].class, int.class));
+            SET_RIGHT = lookup.findVirtual(matchEngine, "setRight", setFrontier)
+                .asType(MethodType.methodType(void.class, Object.class, long[].class, int.class));
+            ADD_RIGHT = lookup.findVirtual(matchEngine, "addRight", changeFrontier)
+                .asType(MethodType.methodType(void.class, Object.class, long[].class, int.class, int.class));
+            REMOVE_RIGHT = lookup.findVirtual(matchEngine, "removeRight", changeFrontier)
+                .asType(MethodType.methodType(void.class, Object.class, long[].class, int.class, int.class));
+            FIND_MATCHES = lookup.findVirtual(matchEngine, "findMatches", MethodType.methodType(List.class))
+                .asType(MethodType.methodType(List.class, Object.class));
+            FIND_FIRST_MATCH = lookup.findVirtual(matchEngine, "findFirstMatch", MethodType.methodType(String.class))
+                .asType(MethodType.methodType(String.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** Number of selected items that are expanded. */
+    @Param({"10", "100", "1000"})
+    public int baseSize;
+
+    /** Number of items generated per selected item. */
+    @Param({"5", "50"})
+    public int countPerBase;
+
+    /** Number of characters added per item. */
+    @Param({"1", "3"})
+    public int additionalChars;
+
+    private long[] leftBases;
+    private long[] rightBases;
+    private long[] leftFrontier;
+    private long[] rightFrontier;
+    private int rightPerBase;
+    private Object warmCache;
+    private Object matchEngine;
+    private int nextBase;
+
+    /**
+     * Builds the base selections, the two innermost frontiers, a cache that
+     * already holds the left expansion, and a match engine loaded with both
+     * frontiers, once per trial.
+     * <p>
+     * Bases are three letters past the start letter on the left and before
+     * the end letter on the right, so that there are enough distinct ones for
+     * the largest base size. Frontiers grown from such bases would almost
+     * never meet, so one right item in SHARED_STRIDE is replaced by a left
+     * item, and matching measures the path that finds meeting strings.
+     * @throws Throwable if a game method fails
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        leftBases = bases(true);
+        rightBases = bases(false);
+        leftFrontier = (long[]) APPEND_RANDOM_KEYS.invokeExact(leftBases, countPerBase, additionalChars, SEED);
+        Object rightColumn = (Object) EXPAND.invokeExact((Object) NEW_EXPANSION_CACHE.invokeExact(), rightBases,
+            countPerBase, additionalChars, true, SEED);
+        rightFrontier = ((long[]) COLUMN_KEYS.invokeExact(rightColumn)).clone();
+        rightPerBase = (int) CHILDREN_PER_BASE.invokeExact(rightColumn);
+        for (int i = 0; i < rightFrontier.length && i < leftFrontier.length; i += SHARED_STRIDE) {
+            rightFrontier[i] = leftFrontier[i];
+        }
+
+        // Expand the left bases once, so every base is a hit in expandCached
+        warmCache = (Object) NEW_EXPANSION_CACHE.invokeExact();
+        Object warmed = (Object) EXPAND.invokeExact(warmCache, leftBases, countPerBase, additionalChars, false, SEED);
+
+        matchEngine = (Object) NEW_MATCH_ENGINE.invokeExact();
+        SET_LEFT.invokeExact(matchEngine, leftFrontier, leftFrontier.length);
+        SET_RIGHT.invokeExact(matchEngine, rightFrontier, rightFrontier.length);
+    }
+
+    /**
+     * Expands a left-side selection, as a selection that misses the cache does.
+     * @return the expanded column
+     * @throws Throwable if the game method fails
+     */
+    @Benchmark
+    public long[] appendRandomKeys() throws Throwable {
+        return (long[]) APPEND_RANDOM_KEYS.invokeExact(leftBases, countPerBase, additionalChars, SEED);
+    }
+
+    /**
+     * Expands a right-side selection.
+     * @return the expanded column
+     * @throws Throwable if the game method fails
+     */
+    @Benchmark
+    public long[] prependRandomKeys() throws Throwable {
+        return (long[]) PREPEND_RANDOM_KEYS.invokeExact(rightBases, countPerBase, additionalChars, SEED);
+    }
+
+    /**
+     * Expands a left-side selection through an empty cache, so every base is
+     * generated and then stored.
+     * @return the expanded column
+     * @throws Throwable if the game method fails
+     */
+    @Benchmark
+    public Object expandUncached() throws Throwable {
+        return (Object) EXPAND.invokeExact((Object) NEW_EXPANSION_CACHE.invokeExact(), leftBases, countPerBase,
+            additionalChars, false, SEED);
+    }
+
+    /**
+     * Expands a left-side selection whose bases are all cached, as selecting
+     * the same items again does.
+     * @return the expanded column
+     * @throws Throwable if the game method fails
+     */
+    @Benchmark
+    public Object expandCached() throws Throwable {
+        return (Object) EXPAND.invokeExact(warmCache, leftBases, countPerBase, additionalChars, false, SEED);
+    }
+
+    /**
+     * Loads both innermost frontiers into a new match engine and collects
+     * every meeting string.
+     * @param blackhole sink for the result
+     * @throws Throwable if the game method fails
+     */
+    @Benchmark
+    public void checkForMatch(Blackhole blackhole) throws Throwable {
+        Object engine = (Object) NEW_MATCH_ENGINE.invokeExact();
+        SET_LEFT.invokeExact(engine, leftFrontier, leftFrontier.length);
+        SET_RIGHT.invokeExact(engine, rightFrontier, rightFrontier.length);
+        blackhole.consume((List<?>) FIND_MATCHES.invokeExact(engine));
+    }
+
+    /**
+     * Drops one base's children from the right frontier and adds them back,
+     * then looks up the first match, which is what the pipeline does when a
+     * selection changes one base of an innermost column.
+     * @return the first meeting string
+     * @throws Throwable if the game method fails
+     */
+    @Benchmark
+    public String updateMatch() throws Throwable {
+        int from = nextBase * rightPerBase;
+        nextBase = (nextBase + 1) % baseSize;
+        REMOVE_RIGHT.invokeExact(matchEngine, rightFrontier, from, from + rightPerBase);
+        ADD_RIGHT.invokeExact(matchEngine, rightFrontier, from, from + rightPerBase);
+        return (String) FIND_FIRST_MATCH.invokeExact(matchEngine);
+    }
+
+    /**
+     * Packs baseSize distinct bases: the start letter A followed by three
+     * letters on the left, three letters followed by the end letter Z on the right.
+     * @param left true for left bases
+     * @return the packed bases
+     * @throws Throwable if the game method fails
+     */
+    private long[] bases(boolean left) throws Throwable {
+        long[] keys = new long[baseSize];
+        for (int i = 0; i < baseSize; i++) {
+            String letters = "" + (char) ('A' + i / 676) + (char) ('A' + i / 26 % 26) + (char) ('A' + i % 26);
+            String base = left ? "A" + letters : letters + "Z";
+            keys[i] = (long) ENCODE.invokeExact(base);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,131 @@
+import javax.swing.AbstractListModel;
+
+/**
+ * List model that is filled with a whole array at once.
+ * Unlike DefaultListModel, which fires an event for every added element,
+ * replacing the contents fires a single contentsChanged event, so a JList
+ * lays out and repaints once per column update no matter how many items
+ * the column holds.
+ * <p>
+ * The contents can also be given as {@link PackedKey} values. In that case
+ * the model only holds the long array and builds a String when the list
+ * asks for an element, which it does only for the rows it paints (as long
+ * as it has a fixed cell size or prototype value). Memory then grows with
+ * the packed data rather than with one String object per row.
+ */
+public class BulkListModel extends AbstractListModel<String> {
+
+    private static final String[] EMPTY = new String[0];
+
+    private String[] items = EMPTY;
+    private long[] keys;
+    private int offset;
+    private int size;
+
+    /**
+     * Replaces the contents of the model and fires one contentsChanged event.
+     * The array is used directly, not copied, so the caller must not modify it afterwards.
+     * @param newItems the new contents, or null to clear the model
+     */
+    public void setItems(String[] newItems) {
+        int oldSize = size;
+        items = (newItems == null ? EMPTY : newItems);
+        keys = null;
+        offset = 0;
+        size = items.length;
+        fireReplaced(oldSize);
+    }
+
+    /**
+     * Replaces the contents of the model with packed keys and fires one
+     * contentsChanged event. Strings are only built for elements the list
+     * asks for. The array is used directly, not copied.
+     * @param newKeys packed keys of the new contents
+     * @param count number of keys in the array to show
+     * @throws IllegalArgumentException if count is out of range for the array
+     */
+    public void setKeys(long[] newKeys, int count) {
+        setKeys(newKeys, 0, count);
+    }
+
+    /**
+     * Shows a range of a packed key array, such as the matches of a
+     * {@link SortedKeyIndex} query, without copying it.
+     * @param newKeys packed keys to show a range of
+     * @param from index of the first key to show
+     * @param to index after the last key to show
+     * @throws IllegalArgumentException if the range is out of bounds for the array
+     */
+    public void setKeys(long[] newKeys, int from, int to) {
+        if (newKeys == null || from < 0 || to < from || to > newKeys.length) {
+            throw new IllegalArgumentException("Invalid key range: " + from + " to " + to);
+        }
+        int oldSize = size;
+        items = EMPTY;
+        keys = newKeys;
+        offset = from;
+        size = to - from;
+        fireReplaced(oldSize);
+    }
+
+    /**
+     * Removes all items.
+     */
+    public void clear() {
+        setItems(null);
+    }
+
+    /**
+     * @return true if the model has no items
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return true if the contents are held as packed keys
+     */
+    public boolean isPacked() {
+        return keys != null;
+    }
+
+    /**
+     * Returns the packed key of an element.
+     * @param index the element index
+     * @return the key
+     * @throws IllegalStateException if the contents are not packed
+     */
+    public long getKeyAt(int index) {
+        if (keys == null) {
+            throw new IllegalStateException("Model does not hold packed keys");
+        }
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return keys[offset + index];
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        if (keys != null) {
+            return PackedKey.decode(getKeyAt(index));
+        }
+        return items[index];
+    }
+
+    /**
+     * Fires a single event covering both the old and the new contents.
+     * @param oldSize the size before the contents were replaced
+     */
+    private void fireReplaced(int oldSize) {
+        int changed = Math.max(oldSize, size);
+        if (changed > 0) {
+            fireContentsChanged(this, 0, changed - 1);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+import java.util.*;
+
+/**
+ * Headless solver for Wiki Game challenges.
+ * Expands the left side by appending characters (like {@link ListCreator#appendRandomChars})
+ * and the right side by prepending uppercase characters (like {@link ListCreator#prependRandomChars}),
+ * one column at a time on both sides, until the two innermost frontiers share a string.
+ * Every item of a column is treated as selected, so the solver plays the best possible game
+ * for the given fan-out settings.
+ */
+public class ChainSolver {
+
+    /** Number of items in the first column on each side, as in the GUI. */
+    public static final int DEFAULT_FIRST_COLUMN_COUNT = 10;
+    /** Number of items generated per selected item, as in the GUI. */
+    public static final int DEFAULT_COUNT_PER_BASE = 5;
+    /** Number of characters added per column, as in the GUI. */
+    public static final int DEFAULT_ADDITIONAL_CHARS = 1;
+    /** Number of columns per side, as in the GUI. */
+    public static final int DEFAULT_MAX_DEPTH = 3;
+
+    private final int firstColumnCount;
+    private final int countPerBase;
+    private final int additionalChars;
+    private final int maxDepth;
+
+    /**
+     * Creates a solver that uses the same settings as the GUI.
+     */
+    public ChainSolver() {
+        this(DEFAULT_FIRST_COLUMN_COUNT, DEFAULT_COUNT_PER_BASE, DEFAULT_ADDITIONAL_CHARS, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * Creates a solver with custom expansion settings.
+     * @param firstColumnCount number of items in the first column on each side
+     * @param countPerBase number of items generated per item of the previous column
+     * @param additionalChars number of characters added per column
+     * @param maxDepth maximum number of columns per side before giving up
+     * @throws IllegalArgumentException if any setting is not positive, or the
+     *                                  meeting strings would not fit in a packed key
+     */
+    public ChainSolver(int firstColumnCount, int countPerBase, int additionalChars, int maxDepth) {
+        if (firstColumnCount <= 0 || countPerBase <= 0) {
+            throw new IllegalArgumentException("Counts must be positive");
+        }
+        if (additionalChars <= 0) {
+            throw new IllegalArgumentException("Additional characters must be positive");
+        }
+        if (maxDepth <= 0) {
+            throw new IllegalArgumentException("Depth must be positive");
+        }
+        if (1 + (long) maxDepth * additionalChars > PackedKey.MAX_LENGTH) {
+            throw new IllegalArgumentException("Chains longer than " + PackedKey.MAX_LENGTH
+                + " characters are not supported");
+        }
+        this.firstColumnCount = firstColumnCount;
+        this.countPerBase = countPerBase;
+        this.additionalChars = additionalChars;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Solves a challenge with a fresh random seed.
+     * @return the result of the search
+     */
+    public Result solveRandom() {
+        return solve(Challenge.random());
+    }
+
+    /**
+     * Runs a bidirectional frontier search between the two letters of a challenge.
+     * Both sides grow by one column per round, so their strings always have the
+     * same length and can be compared directly. Columns are expanded on packed
+     * keys with the challenge seed, so every column is the one the GUI would show
+     * for the same seed and selections.
+     * @param challenge the challenge to solve
+     * @return the result of the search
+     */
+    public Result solve(Challenge challenge) {
+        long seed = challenge.getSeed();
+        long[] left = challenge.firstLeftColumn(firstColumnCount, additionalChars);
+        long[] right = challenge.firstRightColumn(firstColumnCount, additionalChars);
+
+        MatchEngine engine = new MatchEngine();
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            if (depth > 1) {
+                if (left.length == 0 || right.length == 0) {
+                    break;
+                }
+                left = ListCreator.appendRandomKeys(left, countPerBase, additionalChars, seed);
+                right = ListCreator.prependRandomKeys(right, countPerBase, additionalChars, seed);
+            }
+            engine.setLeft(left, left.length);
+            engine.setRight(right, right.length);
+            String match = engine.findFirstMatch();
+            if (match != null) {
+                return new Result(challenge, match, depth, additionalChars);
+            }
+        }
+        return new Result(challenge, null, maxDepth, additionalChars);
+    }
+
+    /**
+     * Outcome of a single solve.
+     */
+    public static final class Result {
+        private final Challenge challenge;
+        private final char startLetter;
+        private final char endLetter;
+        private final String match;
+        private final int depth;
+        private final int additionalChars;
+
+        private Result(Challenge challenge, String match, int depth, int additionalChars) {
+            this.challenge = challenge;
+            this.startLetter = challenge.getStartLetter();
+            this.endLetter = challenge.getEndLetter();
+            this.match = match;
+            this.depth = depth;
+            this.additionalChars = additionalChars;
+        }
+
+        /**
+         * @return true if the two sides met
+         */
+        public boolean isSolved() {
+            return match != null;
+        }
+
+        /**
+         * @return the meeting string, or null if the challenge was not solved
+         */
+        public String getMatch() {
+            return match;
+        }
+
+        /**
+         * @return the number of columns per side that were searched
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * @return the challenge that was solved
+         */
+        public Challenge getChallenge() {
+            return challenge;
+        }
+
+        /**
+         * @return the start letter
+         */
+        public char getStartLetter() {
+            return startLetter;
+        }
+
+        /**
+         * @return the end letter
+         */
+        public char getEndLetter() {
+            return endLetter;
+        }
+
+        /**
+         * Returns the number of links in the chain, counting each hop between
+         * the letters and the strings of the columns.
+         * @return the chain length, or 0 if the challenge was not solved
+         */
+        public int getChainLength() {
+            return isSolved() ? 2 * depth : 0;
+        }
+
+        /**
+         * Rebuilds the left side of the chain from the meeting string.
+         * Each parent is the string with the last appended characters removed.
+         * @return the left chain from the start letter to the meeting string
+         */
+        public List<String> getLeftChain() {
+            List<String> chain = new ArrayList<>();
+            if (!isSolved()) {
+                return chain;
+            }
+            for (String s = match; s.length() > 1; s = s.substring(0, s.length() - additionalChars)) {
+                chain.add(0, s);
+            }
+            chain.add(0, String.valueOf(startLetter));
+            return chain;
+        }
+
+        /**
+         * Rebuilds the right side of the chain from the meeting string.
+         * Each parent is the string with the first prepended characters removed.
+         * @return the right chain from the meeting string to the end letter
+         */
+        public List<String> getRightChain() {
+            List<String> chain = new ArrayList<>();
+            if (!isSolved()) {
+                return chain;
+            }
+            for (String s = match; s.length() > 1; s = s.substring(additionalChars)) {
+                chain.add(s);
+            }
+            chain.add(String.valueOf(endLetter));
+            return chain;
+        }
+
+        /**
+         * Formats the chain the same way the GUI message area does.
+         * @return the chain, or a short note if the challenge was not solved
+         */
+        @Override
+        public String toString() {
+            if (!isSolved()) {
+                return startLetter + " .. " + endLetter + " (no match)";
+            }
+            return String.join(" - ", getLeftChain()) + " == " + String.join(" - ", getRightChain());
+        }
+    }
+
+    /**
+     * Command line mode: solves a batch of random challenges and prints the
+     * throughput and the distribution of chain lengths.
+     * Arguments (all optional): challenges, countPerBase, additionalChars, maxDepth.
+     * @param args command line arguments
+     */
+    public static void runCli(String[] args) {
+        int challenges = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int countPerBase = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_COUNT_PER_BASE;
+        int additionalChars = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ADDITIONAL_CHARS;
+        int maxDepth = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_MAX_DEPTH;
+
+        ChainSolver solver = new ChainSolver(DEFAULT_FIRST_COLUMN_COUNT, countPerBase, additionalChars, maxDepth);
+        Map<Integer, Integer> lengths = new TreeMap<>();
+        int solved = 0;
+        Result example = null;
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < challenges; i++) {
+            Result result = solver.solveRandom();
+            if (result.isSolved()) {
+                solved++;
+                lengths.merge(result.getChainLength(), 1, Integer::sum);
+                if (example == null) {
+                    example = result;
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+
+        System.out.printf("Challenges: %d (countPerBase=%d, additionalChars=%d, maxDepth=%d)%n",
+            challenges, countPerBase, additionalChars, maxDepth);
+        System.out.printf("Solved: %d (%.2f%%)%n", solved, challenges == 0 ? 0.0 : 100.0 * solved / challenges);
+        System.out.printf("Throughput: %.0f challenges/s (%.3f s total)%n", challenges / seconds, seconds);
+        for (Map.Entry<Integer, Integer> entry : lengths.entrySet()) {
+            System.out.printf("Chain length %d: %d%n", entry.getKey(), entry.getValue());
+        }
+        if (example != null) {
+            System.out.println("Example: " + example + " (seed " + example.getChallenge().getSeed() + ")");
+        }
+    }
+}
@@ -0,0 +1,108 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * A single game challenge: a seed and the start and end letters drawn from it.
+ * Every column of the challenge is generated from the same seed, so replaying
+ * a seed with the same selections reproduces the game exactly.
+ */
+public final class Challenge {
+
+    /** Number of items in the first column on each side. */
+    public static final int FIRST_COLUMN_COUNT = 10;
+
+    private final long seed;
+    private final char startLetter;
+    private final char endLetter;
+
+    /**
+     * Creates the challenge for a seed.
+     * @param seed the challenge seed
+     */
+    public Challenge(long seed) {
+        this.seed = seed;
+        RandomGenerator rng = RandomSource.forSeed(seed);
+        char start = Main.randomUpperCaseLetter(rng);
+        char end = Main.randomUpperCaseLetter(rng);
+        while (end == start) {
+            end = Main.randomUpperCaseLetter(rng);
+        }
+        this.startLetter = start;
+        this.endLetter = end;
+    }
+
+    /**
+     * Creates a challenge with chosen letters. The seed still drives every
+     * column, so the same seed and letters always give the same game.
+     * @param seed the challenge seed
+     * @param startLetter the start letter, A to Z
+     * @param endLetter the end letter, A to Z, different from the start letter
+     * @throws IllegalArgumentException if a letter is not uppercase or the letters are equal
+     */
+    public Challenge(long seed, char startLetter, char endLetter) {
+        if (startLetter < 'A' || startLetter > 'Z' || endLetter < 'A' || endLetter > 'Z') {
+            throw new IllegalArgumentException("Letters must be A to Z");
+        }
+        if (startLetter == endLetter) {
+            throw new IllegalArgumentException("Start and end letters must differ");
+        }
+        this.seed = seed;
+        this.startLetter = startLetter;
+        this.endLetter = endLetter;
+    }
+
+    /**
+     * Creates a challenge with a fresh random seed.
+     * @return the new challenge
+     */
+    public static Challenge random() {
+        return new Challenge(RandomSource.newSeed());
+    }
+
+    /**
+     * @return the seed every column of this challenge is generated from
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return the start letter (left side)
+     */
+    public char getStartLetter() {
+        return startLetter;
+    }
+
+    /**
+     * @return the end letter (right side)
+     */
+    public char getEndLetter() {
+        return endLetter;
+    }
+
+    /**
+     * Generates the first left column: the start letter followed by random letters.
+     * @param count number of items to generate
+     * @param additionalChars number of letters to append to the start letter
+     * @return packed keys of the column
+     */
+    public long[] firstLeftColumn(int count, int additionalChars) {
+        long[] base = {PackedKey.encode(String.valueOf(startLetter))};
+        return ListCreator.appendRandomKeys(base, count, additionalChars, seed);
+    }
+
+    /**
+     * Generates the first right column: random uppercase letters followed by the end letter.
+     * @param count number of items to generate
+     * @param additionalChars number of letters to prepend to the end letter
+     * @return packed keys of the column
+     */
+    public long[] firstRightColumn(int count, int additionalChars) {
+        long[] base = {PackedKey.encode(String.valueOf(endLetter))};
+        return ListCreator.prependRandomKeys(base, count, additionalChars, seed);
+    }
+
+    @Override
+    public String toString() {
+        return startLetter + " -> " + endLetter + " (seed " + seed + ")";
+    }
+}
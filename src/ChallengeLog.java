@@ -0,0 +1,461 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Append-only binary log of challenges and solved chains.
+ * Records have a fixed size and are written straight into a memory-mapped
+ * region of the file, so logging is a handful of memory stores on the
+ * caller's thread; the operating system writes the pages out. The file is
+ * mapped in chunks that are extended as the log grows, and the number of
+ * records is kept in the header so a log can be reopened and appended to.
+ * <p>
+ * Record layout (64 bytes, big-endian):
+ * <pre>
+ *  0  long   challenge seed
+ *  8  long   wall-clock time in milliseconds
+ * 16  long   nanoseconds from the start of the challenge to the solve, or -1
+ * 24  char   start letter
+ * 26  char   end letter
+ * 28  byte   record type (CHALLENGE or SOLVED)
+ * 29  byte   length of the match string
+ * 30  byte   depth of the game (columns per side)
+ * 31  byte   unused
+ * 32  short  number of selected items in the first five left columns, outermost first
+ * 42  short  number of selected items in the first five right columns, outermost first
+ * 52  byte[] match string (ASCII, up to 10 characters, the longest a packed key holds)
+ * </pre>
+ * Columns past the fifth on a side, which only games deeper than five have,
+ * are not recorded.
+ */
+public class ChallengeLog implements Closeable {
+
+    /** Record type written when a challenge starts. */
+    public static final byte CHALLENGE = 0;
+    /** Record type written when a chain is shown. */
+    public static final byte SOLVED = 1;
+    /** Number of columns per side whose selection counts are recorded. */
+    public static final int COLUMNS_PER_SIDE = 5;
+
+    static final int RECORD_SIZE = 64;
+    static final int HEADER_SIZE = 64;
+    static final int MAX_MATCH_LENGTH = PackedKey.MAX_LENGTH;
+
+    // Field offsets within a record that moved or were added in version 2
+    private static final int DEPTH_OFFSET = 30;
+    private static final int LEFT_SELECTIONS_OFFSET = 32;
+    private static final int RIGHT_SELECTIONS_OFFSET = LEFT_SELECTIONS_OFFSET + 2 * COLUMNS_PER_SIDE;
+    private static final int MATCH_OFFSET = RIGHT_SELECTIONS_OFFSET + 2 * COLUMNS_PER_SIDE;
+
+    private static final int MAGIC = 0x57474C47; // "WGLG"
+    private static final int VERSION = 2;
+    private static final int COUNT_OFFSET = 8;
+    private static final long CHUNK_SIZE = 1L << 20;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private MappedByteBuffer chunk;
+    private long chunkStart;
+    private long count;
+
+    /**
+     * Opens a log for appending, creating it if it does not exist.
+     * @param path the log file
+     * @throws IOException if the file cannot be opened or is not a challenge log
+     */
+    public ChallengeLog(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        boolean isNew = channel.size() == 0;
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        if (isNew) {
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putLong(COUNT_OFFSET, 0);
+        } else {
+            try {
+                checkHeader(header, path);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+        count = header.getLong(COUNT_OFFSET);
+        mapChunkFor(count);
+    }
+
+    /**
+     * @return the default log location, in the .wikigame folder of the user's home directory
+     */
+    public static Path defaultPath() {
+        return Paths.get(System.getProperty("user.home"), ".wikigame", "challenges.log");
+    }
+
+    /**
+     * Checks that a header belongs to a log this version can read.
+     * @param header the mapped header
+     * @param path the log file, for the message
+     * @throws IOException if the file is not a challenge log or has another version
+     */
+    private static void checkHeader(MappedByteBuffer header, Path path) throws IOException {
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not a challenge log: " + path);
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Challenge log " + path + " has version " + header.getInt(4)
+                + ", expected " + VERSION);
+        }
+    }
+
+    /**
+     * Records the start of a challenge.
+     * @param challenge the challenge that started
+     * @param depth number of columns per side in the game
+     */
+    public synchronized void logChallenge(Challenge challenge, int depth) {
+        append(challenge, CHALLENGE, depth, -1, null, null, null);
+    }
+
+    /**
+     * Records a chain shown to the player.
+     * @param challenge the challenge that was solved
+     * @param depth number of columns per side in the game
+     * @param solveNanos time from the start of the challenge to the solve
+     * @param leftSelections number of selected items in each left column, outermost first;
+     *                       only the first {@link #COLUMNS_PER_SIDE} are recorded
+     * @param rightSelections number of selected items in each right column, outermost first;
+     *                        only the first {@link #COLUMNS_PER_SIDE} are recorded
+     * @param match the meeting string
+     */
+    public synchronized void logSolved(Challenge challenge, int depth, long solveNanos, int[] leftSelections,
+                                       int[] rightSelections, String match) {
+        append(challenge, SOLVED, depth, solveNanos, leftSelections, rightSelections, match);
+    }
+
+    /**
+     * @return the number of records in the log
+     */
+    public synchronized long size() {
+        return count;
+    }
+
+    /**
+     * Flushes the mapped pages and closes the file.
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        chunk.force();
+        header.force();
+        channel.close();
+    }
+
+    /**
+     * Writes one record into the mapped region and bumps the count in the header.
+     * @param challenge the challenge the record belongs to
+     * @param type CHALLENGE or SOLVED
+     * @param depth number of columns per side
+     * @param solveNanos time to solve, or -1
+     * @param leftSelections number of selected items per left column, outermost first, or null
+     * @param rightSelections number of selected items per right column, outermost first, or null
+     * @param match the meeting string, or null
+     */
+    private void append(Challenge challenge, byte type, int depth, long solveNanos, int[] leftSelections,
+                        int[] rightSelections, String match) {
+        long position = HEADER_SIZE + count * RECORD_SIZE;
+        if (position + RECORD_SIZE > chunkStart + chunk.capacity()) {
+            mapChunkFor(count);
+        }
+        int offset = (int) (position - chunkStart);
+        chunk.putLong(offset, challenge.getSeed());
+        chunk.putLong(offset + 8, System.currentTimeMillis());
+        chunk.putLong(offset + 16, solveNanos);
+        chunk.putChar(offset + 24, challenge.getStartLetter());
+        chunk.putChar(offset + 26, challenge.getEndLetter());
+        chunk.put(offset + 28, type);
+        chunk.put(offset + DEPTH_OFFSET, (byte) depth);
+        chunk.put(offset + DEPTH_OFFSET + 1, (byte) 0);
+        putSelections(offset + LEFT_SELECTIONS_OFFSET, leftSelections);
+        putSelections(offset + RIGHT_SELECTIONS_OFFSET, rightSelections);
+        int length = (match == null ? 0 : Math.min(match.length(), MAX_MATCH_LENGTH));
+        chunk.put(offset + 29, (byte) length);
+        for (int i = 0; i < RECORD_SIZE - MATCH_OFFSET; i++) {
+            chunk.put(offset + MATCH_OFFSET + i, i < length ? (byte) match.charAt(i) : 0);
+        }
+        count++;
+        header.putLong(COUNT_OFFSET, count);
+    }
+
+    /**
+     * Writes the selection counts of one side, padding with zeros.
+     * @param position offset of the side's first count in the chunk
+     * @param selections number of selected items per column, outermost first, or null
+     */
+    private void putSelections(int position, int[] selections) {
+        for (int i = 0; i < COLUMNS_PER_SIDE; i++) {
+            int selected = (selections != null && i < selections.length) ? selections[i] : 0;
+            chunk.putShort(position + 2 * i, (short) Math.min(selected, Short.MAX_VALUE));
+        }
+    }
+
+    /**
+     * Maps the chunk of the file that holds the given record, growing the file if needed.
+     * @param record the record index
+     */
+    private void mapChunkFor(long record) {
+        chunkStart = HEADER_SIZE + record * RECORD_SIZE;
+        try {
+            chunk = channel.map(FileChannel.MapMode.READ_WRITE, chunkStart, CHUNK_SIZE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not extend challenge log", e);
+        }
+    }
+
+    /**
+     * Read-only view of a log. The whole file is mapped and records are read
+     * in place, so scanning allocates nothing per record.
+     */
+    public static class Reader implements Closeable {
+
+        // A single mapping is limited to 2 GB, so large logs are mapped in segments
+        private static final long SEGMENT_RECORDS = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+
+        private final FileChannel channel;
+        private final MappedByteBuffer[] segments;
+        private final long count;
+
+        /**
+         * Opens a log for reading.
+         * @param path the log file
+         * @throws IOException if the file cannot be read or is not a challenge log
+         */
+        public Reader(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            try {
+                checkHeader(header, path);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            count = header.getLong(COUNT_OFFSET);
+            int segmentCount = (int) ((count + SEGMENT_RECORDS - 1) / SEGMENT_RECORDS);
+            segments = new MappedByteBuffer[segmentCount];
+            for (int s = 0; s < segmentCount; s++) {
+                long first = s * SEGMENT_RECORDS;
+                long records = Math.min(SEGMENT_RECORDS, count - first);
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_SIZE + first * RECORD_SIZE, records * RECORD_SIZE);
+            }
+        }
+
+        /**
+         * @return the number of records in the log
+         */
+        public long size() {
+            return count;
+        }
+
+        /**
+         * Calls the visitor once per record, in log order. The same view object
+         * is reused for every record and is only valid during the call.
+         * @param visitor receives each record
+         */
+        public void forEach(RecordVisitor visitor) {
+            RecordView view = new RecordView();
+            for (long i = 0; i < count; i++) {
+                view.buffer = segments[(int) (i / SEGMENT_RECORDS)];
+                view.offset = (int) ((i % SEGMENT_RECORDS) * RECORD_SIZE);
+                visitor.visit(view);
+            }
+        }
+
+        /**
+         * Scans the log and computes solve-rate and solve-time statistics.
+         * The counts come from one pass over the mapped records; a second pass
+         * gathers the solve times for the percentiles.
+         * @return the statistics
+         */
+        public Stats summarize() {
+            Stats stats = new Stats();
+            forEach(record -> {
+                if (record.getType() == CHALLENGE) {
+                    stats.challenges++;
+                } else if (record.getType() == SOLVED) {
+                    stats.solves++;
+                }
+            });
+            return stats.withSolveTimes(collectSolveTimes(stats.solves));
+        }
+
+        /**
+         * Copies the solve times out of the log so percentiles can be computed.
+         * @param solves number of SOLVED records
+         * @return the solve times in nanoseconds, sorted
+         */
+        private long[] collectSolveTimes(long solves) {
+            long[] times = new long[(int) Math.min(solves, Integer.MAX_VALUE - 8)];
+            int[] size = new int[1];
+            forEach(record -> {
+                if (record.getType() == SOLVED && record.getSolveNanos() >= 0 && size[0] < times.length) {
+                    times[size[0]++] = record.getSolveNanos();
+                }
+            });
+            long[] result = Arrays.copyOf(times, size[0]);
+            Arrays.sort(result);
+            return result;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Receives records while a log is scanned.
+     */
+    public interface RecordVisitor {
+        /**
+         * Called once per record.
+         * @param record view of the current record, valid only during this call
+         */
+        void visit(RecordView record);
+    }
+
+    /**
+     * Flyweight view of one record inside the mapped file.
+     */
+    public static final class RecordView {
+        private MappedByteBuffer buffer;
+        private int offset;
+
+        /** @return the challenge seed */
+        public long getSeed() {
+            return buffer.getLong(offset);
+        }
+
+        /** @return the wall-clock time of the record in milliseconds */
+        public long getTimestampMillis() {
+            return buffer.getLong(offset + 8);
+        }
+
+        /** @return nanoseconds from the start of the challenge to the solve, or -1 */
+        public long getSolveNanos() {
+            return buffer.getLong(offset + 16);
+        }
+
+        /** @return the start letter */
+        public char getStartLetter() {
+            return buffer.getChar(offset + 24);
+        }
+
+        /** @return the end letter */
+        public char getEndLetter() {
+            return buffer.getChar(offset + 26);
+        }
+
+        /** @return CHALLENGE or SOLVED */
+        public byte getType() {
+            return buffer.get(offset + 28);
+        }
+
+        /** @return the number of columns per side in the game */
+        public int getDepth() {
+            return buffer.get(offset + DEPTH_OFFSET);
+        }
+
+        /**
+         * @param side the side of the column
+         * @param column column index on that side, 0 for the outermost
+         * @return the number of items selected in that column, or 0 if the
+         *         game has no such column or it was not recorded
+         * @throws IllegalArgumentException if column is negative
+         */
+        public int getSelections(ColumnPipeline.Side side, int column) {
+            if (column < 0) {
+                throw new IllegalArgumentException("Negative column " + column);
+            }
+            if (column >= Math.min(getDepth(), COLUMNS_PER_SIDE)) {
+                return 0;
+            }
+            int first = side == ColumnPipeline.Side.LEFT ? LEFT_SELECTIONS_OFFSET : RIGHT_SELECTIONS_OFFSET;
+            return buffer.getShort(offset + first + 2 * column);
+        }
+
+        /**
+         * Copies the match string out of the record.
+         * @return the match string, empty for CHALLENGE records
+         */
+        public String getMatch() {
+            int length = buffer.get(offset + 29);
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = buffer.get(offset + MATCH_OFFSET + i);
+            }
+            return new String(bytes, StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * Summary statistics of a log.
+     */
+    public static final class Stats {
+        private long challenges;
+        private long solves;
+        private long[] solveTimes = new long[0];
+
+        private Stats withSolveTimes(long[] sortedTimes) {
+            this.solveTimes = sortedTimes;
+            return this;
+        }
+
+        /** @return the number of challenges started */
+        public long getChallenges() {
+            return challenges;
+        }
+
+        /** @return the number of chains shown */
+        public long getSolves() {
+            return solves;
+        }
+
+        /** @return solves per challenge started, 0 if there were none */
+        public double getSolveRate() {
+            return challenges == 0 ? 0.0 : (double) solves / challenges;
+        }
+
+        /**
+         * Returns a percentile of the solve time.
+         * @param percentile the percentile, 0 to 100
+         * @return the solve time in nanoseconds, or 0 if nothing was solved
+         */
+        public long getSolveNanosPercentile(double percentile) {
+            if (solveTimes.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * solveTimes.length) - 1;
+            return solveTimes[Math.max(0, Math.min(index, solveTimes.length - 1))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Challenges: %d%nSolves: %d (%.2f%%)%n"
+                    + "Solve time p50: %.1f s, p90: %.1f s, p99: %.1f s",
+                challenges, solves, 100.0 * getSolveRate(),
+                getSolveNanosPercentile(50) / 1e9, getSolveNanosPercentile(90) / 1e9,
+                getSolveNanosPercentile(99) / 1e9);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded pool of challenges that are generated and solved ahead of time
+ * by a background producer, so starting a game does not have to wait for a
+ * challenge to be drawn, checked and filled.
+ * <p>
+ * Every entry has been solved by {@link ChainSolver} with the game's settings
+ * and kept only if its sides meet within the target range of columns, so a
+ * pooled challenge is always solvable. Entries are held in a lock-free ring
+ * buffer: each slot carries a sequence number that tells producers and
+ * consumers whose turn it is, and both sides claim a slot with a single
+ * compare-and-set. {@link #poll()} gives up after a bounded number of
+ * attempts, so it completes in a bounded number of steps however many
+ * threads take challenges at once; a caller that gets nothing falls back to
+ * drawing a challenge itself.
+ * <p>
+ * When the pool is full the producer parks until a consumer takes an entry,
+ * so a pool nobody uses costs no CPU. Hits, misses, refills, rejected draws
+ * and the times the producer found the pool full are counted in
+ * {@link Metrics} when metrics are enabled.
+ */
+public class ChallengePool implements AutoCloseable {
+
+    /** Number of challenges kept ready when no capacity is given. */
+    public static final int DEFAULT_CAPACITY = 64;
+    /**
+     * Fewest columns per side a game's pooled challenges should need, so none
+     * is solved on sight by its first columns. Games shallower than this use
+     * their own depth.
+     */
+    public static final int MIN_SOLUTION_DEPTH = 2;
+
+    // Attempts a poll makes to claim an entry before reporting the pool empty
+    private static final int MAX_POLL_ATTEMPTS = 16;
+
+    // Longest time the producer parks before re-checking a full pool
+    private static final long FULL_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * A challenge with its first columns generated and a known solution.
+     */
+    public static final class Entry {
+        private final Challenge challenge;
+        private final long[] firstLeft;
+        private final long[] firstRight;
+        private final ChainSolver.Result solution;
+
+        /**
+         * Creates an entry.
+         * @param challenge the challenge
+         * @param firstLeft packed keys of the first left column
+         * @param firstRight packed keys of the first right column
+         * @param solution a solved result for the challenge
+         */
+        private Entry(Challenge challenge, long[] firstLeft, long[] firstRight, ChainSolver.Result solution) {
+            this.challenge = challenge;
+            this.firstLeft = firstLeft;
+            this.firstRight = firstRight;
+            this.solution = solution;
+        }
+
+        /**
+         * @return the challenge
+         */
+        public Challenge getChallenge() {
+            return challenge;
+        }
+
+        /**
+         * @return packed keys of the first left column (not copied; do not modify)
+         */
+        public long[] getFirstLeftColumn() {
+            return firstLeft;
+        }
+
+        /**
+         * @return packed keys of the first right column (not copied; do not modify)
+         */
+        public long[] getFirstRightColumn() {
+            return firstRight;
+        }
+
+        /**
+         * @return the solver's result, which always has a match
+         */
+        public ChainSolver.Result getSolution() {
+            return solution;
+        }
+    }
+
+    private final int firstColumnCount;
+    private final int additionalChars;
+    private final int minDepth;
+    private final ChainSolver solver;
+
+    // Ring buffer: slot i is free for the producer at sequence i and holds an entry at sequence i+1
+    private final AtomicReferenceArray<Entry> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    private final Thread producer;
+    private volatile boolean producerWaiting;
+    private volatile boolean closed;
+
+    /**
+     * Creates a pool and starts its producer thread.
+     * @param capacity the number of challenges to keep ready (rounded up to a power of two)
+     * @param firstColumnCount number of items in the first column on each side
+     * @param countPerBase number of items generated per selected item
+     * @param additionalChars number of characters added per column
+     * @param minDepth fewest columns per side a kept challenge needs before its sides meet
+     * @param maxDepth most columns per side a kept challenge may need
+     * @throws IllegalArgumentException if capacity is not positive, the depths are out
+     *                                  of order, or the solver rejects the settings
+     */
+    public ChallengePool(int capacity, int firstColumnCount, int countPerBase, int additionalChars,
+                         int minDepth, int maxDepth) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+        }
+        if (minDepth <= 0 || minDepth > maxDepth) {
+            throw new IllegalArgumentException("Depths must satisfy 0 < minDepth <= maxDepth");
+        }
+        this.solver = new ChainSolver(firstColumnCount, countPerBase, additionalChars, maxDepth);
+        this.firstColumnCount = firstColumnCount;
+        this.additionalChars = additionalChars;
+        this.minDepth = minDepth;
+
+        int length = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        slots = new AtomicReferenceArray<>(length);
+        sequences = new AtomicLongArray(length);
+        for (int i = 0; i < length; i++) {
+            sequences.set(i, i);
+        }
+        mask = length - 1;
+
+        producer = new Thread(this::produce, "challenge-pool");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    /**
+     * Takes a ready challenge without blocking.
+     * @return a pooled challenge, or null if none was ready
+     */
+    public Entry poll() {
+        for (int attempt = 0; attempt < MAX_POLL_ATTEMPTS; attempt++) {
+            long position = head.get();
+            int slot = (int) position & mask;
+            long difference = sequences.get(slot) - (position + 1);
+            if (difference < 0) {
+                break;
+            }
+            if (difference == 0 && head.compareAndSet(position, position + 1)) {
+                Entry entry = slots.getAndSet(slot, null);
+                sequences.set(slot, position + mask + 1);
+                if (producerWaiting) {
+                    LockSupport.unpark(producer);
+                }
+                if (Metrics.ENABLED) {
+                    Metrics.POOL_HITS.increment();
+                }
+                return entry;
+            }
+        }
+        if (Metrics.ENABLED) {
+            Metrics.POOL_MISSES.increment();
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of challenges ready to be taken (approximate while
+     *         other threads use the pool)
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    /**
+     * @return the largest number of challenges the pool keeps ready
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Stops the producer. Challenges already in the pool can still be taken.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(producer);
+    }
+
+    /**
+     * Producer loop: draws and solves challenges, keeping those in the target
+     * range, and parks while the pool is full.
+     */
+    private void produce() {
+        Entry next = null;
+        while (!closed) {
+            if (next == null) {
+                next = draw();
+                if (next == null) {
+                    continue;
+                }
+            }
+            if (offer(next)) {
+                next = null;
+                if (Metrics.ENABLED) {
+                    Metrics.POOL_REFILLS.increment();
+                }
+                continue;
+            }
+            // Full: wait for a consumer to free a slot
+            if (Metrics.ENABLED) {
+                Metrics.POOL_FULL_WAITS.increment();
+            }
+            producerWaiting = true;
+            if (size() == getCapacity() && !closed) {
+                LockSupport.parkNanos(this, FULL_PARK_NANOS);
+            }
+            producerWaiting = false;
+        }
+    }
+
+    /**
+     * Draws one random challenge and solves it.
+     * @return the entry, or null if the challenge was outside the target range
+     */
+    private Entry draw() {
+        ChainSolver.Result result = solver.solveRandom();
+        if (!result.isSolved() || result.getDepth() < minDepth) {
+            if (Metrics.ENABLED) {
+                Metrics.POOL_REJECTED.increment();
+            }
+            return null;
+        }
+        Challenge challenge = result.getChallenge();
+        return new Entry(challenge, challenge.firstLeftColumn(firstColumnCount, additionalChars),
+            challenge.firstRightColumn(firstColumnCount, additionalChars), result);
+    }
+
+    /**
+     * Adds an entry if there is room.
+     * @param entry the entry to add
+     * @return true if it was added, false if the pool is full
+     */
+    private boolean offer(Entry entry) {
+        while (true) {
+            long position = tail.get();
+            int slot = (int) position & mask;
+            long difference = sequences.get(slot) - position;
+            if (difference < 0) {
+                return false;
+            }
+            if (difference == 0 && tail.compareAndSet(position, position + 1)) {
+                slots.set(slot, entry);
+                sequences.set(slot, position + 1);
+                return true;
+            }
+        }
+    }
+}
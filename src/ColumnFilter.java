@@ -0,0 +1,187 @@
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.util.Arrays;
+
+/**
+ * Type-ahead filter for one column. A text field sits in the column's
+ * scroll pane header, and as the player types, the list shrinks to the items
+ * that start with the text (left columns) or end with it (right columns).
+ * <p>
+ * The column's keys are sorted into a {@link SortedKeyIndex} once per
+ * contents, the first time a filter is applied to them, so each keystroke is
+ * answered by two binary searches and the list is shown the matching range of
+ * the index without copying it. Clearing the text shows the column in its
+ * generated order again.
+ * <p>
+ * Typing in the field or re-ordering the column, such as by hint score,
+ * keeps the selection of the items still shown; while the filter restores
+ * the selection, {@link #isUpdating()} is true so listeners can ignore the events.
+ * <p>
+ * All methods must be called on the Event Dispatch Thread.
+ */
+public class ColumnFilter {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final JList<String> list;
+    private final BulkListModel model;
+    private final boolean suffix;
+    private final JTextField field = new JTextField();
+
+    // The column's full contents, and their index once a filter has needed it
+    private long[] keys = EMPTY;
+    private SortedKeyIndex index;
+
+    // True while the field or the selection is changed by code rather than by the player
+    private boolean updating;
+
+    /**
+     * Creates a filter for a list that uses a {@link BulkListModel}.
+     * @param list the list to filter
+     * @param suffix true to match the ends of items (right columns), false to match their starts
+     */
+    public ColumnFilter(JList<String> list, boolean suffix) {
+        this.list = list;
+        this.model = (BulkListModel) list.getModel();
+        this.suffix = suffix;
+        field.setToolTipText(suffix ? "Show items ending with" : "Show items starting with");
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                textChanged();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                textChanged();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                textChanged();
+            }
+        });
+    }
+
+    /**
+     * Puts the filter field in the header of the scroll pane around the list.
+     * Does nothing if the list is not in a scroll pane.
+     */
+    public void install() {
+        JScrollPane scrollPane = (JScrollPane) SwingUtilities.getAncestorOfClass(JScrollPane.class, list);
+        if (scrollPane != null) {
+            scrollPane.setColumnHeaderView(field);
+        }
+    }
+
+    /**
+     * Replaces the column's contents and shows those that pass the current
+     * filter. The selection is cleared, since it belonged to the old contents.
+     * @param newKeys packed keys of the column (not copied)
+     */
+    public void setKeys(long[] newKeys) {
+        keys = newKeys;
+        index = null;
+        list.clearSelection();
+        apply();
+    }
+
+    /**
+     * Shows the same items in a new order. The index is kept, and items that
+     * were selected stay selected.
+     * @param orderedKeys the column's keys in the order to show them (not copied)
+     */
+    public void reorder(long[] orderedKeys) {
+        keys = orderedKeys;
+        applyKeepingSelection();
+    }
+
+    /**
+     * @return the column's keys in the order they are shown (not copied; do not modify)
+     */
+    public long[] getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return true while the filter itself is changing the list's contents or selection
+     */
+    public boolean isUpdating() {
+        return updating;
+    }
+
+    /**
+     * Empties the column and the filter text.
+     */
+    public void clear() {
+        updating = true;
+        try {
+            field.setText("");
+        } finally {
+            updating = false;
+        }
+        setKeys(EMPTY);
+    }
+
+    /**
+     * Applies the filter after the player edits the text.
+     */
+    private void textChanged() {
+        if (!updating) {
+            applyKeepingSelection();
+        }
+    }
+
+    /**
+     * Applies the filter, then selects again the items that were selected
+     * before and still pass it. Items the filter hides lose their selection.
+     */
+    private void applyKeepingSelection() {
+        int[] indices = list.getSelectedIndices();
+        LongHashSet selected = new LongHashSet(indices.length);
+        for (int i : indices) {
+            selected.add(model.getKeyAt(i));
+        }
+
+        updating = true;
+        try {
+            apply();
+            int[] restored = new int[selected.size()];
+            int count = 0;
+            for (int i = 0; i < model.getSize() && count < restored.length; i++) {
+                if (selected.contains(model.getKeyAt(i))) {
+                    restored[count++] = i;
+                }
+            }
+            if (count == 0) {
+                list.clearSelection();
+            } else {
+                list.setSelectedIndices(Arrays.copyOf(restored, count));
+            }
+        } finally {
+            updating = false;
+        }
+    }
+
+    /**
+     * Shows the items that pass the filter, building the index first if the
+     * column has not been filtered since it was filled.
+     */
+    private void apply() {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        String text = field.getText();
+        if (text.isEmpty()) {
+            model.setKeys(keys, keys.length);
+        } else {
+            if (index == null) {
+                index = suffix ? SortedKeyIndex.forSuffixes(keys, keys.length)
+                    : SortedKeyIndex.forPrefixes(keys, keys.length);
+            }
+            model.setKeys(index.keys(), index.first(text), index.end(text));
+        }
+        if (Metrics.ENABLED) {
+            Metrics.FILTER.recordSince(start);
+        }
+    }
+}
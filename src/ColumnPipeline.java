@@ -0,0 +1,469 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The columns of one game, held as a pipeline of frontiers on each side.
+ * Column 0 of a side is its outermost column (next to the start or end
+ * letter) and column depth-1 its innermost column. Every column after the
+ * first is generated from the selection in the column before it, so a new
+ * selection in column k only invalidates columns k+1 onward; the columns
+ * before it keep their contents and selections. Matches are only looked for
+ * between the two innermost columns, and only when one of them has changed;
+ * the match engine is then told only which bases' children entered or left
+ * the column, so the cost of a check follows the size of the change.
+ * Every string generated on a side is also kept in a {@link FrontierTrie},
+ * so the chain leading to any string can be rebuilt from parent pointers.
+ * <p>
+ * Expansion is split from installing the result so that the expensive part
+ * can run on a background thread: {@link #expand} has no side effects, and
+ * {@link #apply} is called on the thread that owns the pipeline.
+ */
+public class ColumnPipeline {
+
+    /**
+     * The two sides of the game.
+     */
+    public enum Side {
+        /** Columns growing from the start letter by appending characters. */
+        LEFT,
+        /** Columns growing from the end letter by prepending characters. */
+        RIGHT
+    }
+
+    private static final long[] EMPTY = new long[0];
+    private static final KeyColumn EMPTY_COLUMN = new KeyColumn(EMPTY, EMPTY, 0);
+
+    private final Challenge challenge;
+    private final int depth;
+    private final int countPerBase;
+    private final int additionalChars;
+
+    // Each column with the bases it was generated from, and the items selected in it, per side
+    private final KeyColumn[] leftColumns;
+    private final KeyColumn[] rightColumns;
+    private final long[][] leftSelections;
+    private final long[][] rightSelections;
+
+    // Every string generated so far on each side, linked to the string it was generated from
+    private final FrontierTrie leftTrie;
+    private final FrontierTrie rightTrie;
+
+    // Children already generated for each base in this challenge
+    private final ExpansionCache expansionCache;
+
+    private final MatchEngine matchEngine = new MatchEngine();
+    private boolean matchDirty = true;
+    private String cachedMatch;
+
+    /**
+     * Creates the pipeline for a challenge and fills the first column on each side.
+     * @param challenge the challenge to play
+     * @param depth number of columns per side
+     * @param firstColumnCount number of items in the first column on each side
+     * @param countPerBase number of items generated per selected item
+     * @param additionalChars number of characters added per column
+     * @throws IllegalArgumentException if any setting is not positive, or the
+     *                                  innermost strings would not fit in a packed key
+     */
+    public ColumnPipeline(Challenge challenge, int depth, int firstColumnCount, int countPerBase,
+                          int additionalChars) {
+        this(challenge, depth, firstColumnCount, countPerBase, additionalChars, new ExpansionCache());
+    }
+
+    /**
+     * Creates the pipeline for a challenge, sharing an expansion cache with
+     * other pipelines. The cache should be cleared when a new challenge starts.
+     * @param challenge the challenge to play
+     * @param depth number of columns per side
+     * @param firstColumnCount number of items in the first column on each side
+     * @param countPerBase number of items generated per selected item
+     * @param additionalChars number of characters added per column
+     * @param expansionCache the cache to look up and store generated children in
+     * @throws IllegalArgumentException if any setting is not positive, or the
+     *                                  innermost strings would not fit in a packed key
+     */
+    public ColumnPipeline(Challenge challenge, int depth, int firstColumnCount, int countPerBase,
+                          int additionalChars, ExpansionCache expansionCache) {
+        this(challenge, depth, firstLeftColumn(challenge, firstColumnCount, additionalChars),
+            challenge.firstRightColumn(firstColumnCount, additionalChars), countPerBase, additionalChars,
+            expansionCache);
+    }
+
+    /**
+     * Creates the pipeline for a challenge whose first columns were generated
+     * ahead of time, for example by a {@link ChallengePool}.
+     * @param challenge the challenge to play
+     * @param depth number of columns per side
+     * @param firstLeft packed keys of the first left column (not copied)
+     * @param firstRight packed keys of the first right column (not copied)
+     * @param countPerBase number of items generated per selected item
+     * @param additionalChars number of characters added per column
+     * @param expansionCache the cache to look up and store generated children in
+     * @throws IllegalArgumentException if any setting is not positive, or the
+     *                                  innermost strings would not fit in a packed key
+     */
+    public ColumnPipeline(Challenge challenge, int depth, long[] firstLeft, long[] firstRight, int countPerBase,
+                          int additionalChars, ExpansionCache expansionCache) {
+        checkSettings(depth, countPerBase, additionalChars);
+        this.challenge = challenge;
+        this.depth = depth;
+        this.countPerBase = countPerBase;
+        this.additionalChars = additionalChars;
+        this.expansionCache = expansionCache;
+
+        leftColumns = new KeyColumn[depth];
+        rightColumns = new KeyColumn[depth];
+        leftSelections = new long[depth][];
+        rightSelections = new long[depth][];
+        Arrays.fill(leftColumns, EMPTY_COLUMN);
+        Arrays.fill(rightColumns, EMPTY_COLUMN);
+        Arrays.fill(leftSelections, EMPTY);
+        Arrays.fill(rightSelections, EMPTY);
+        leftTrie = FrontierTrie.prefixTrie(challenge.getStartLetter(), additionalChars);
+        rightTrie = FrontierTrie.suffixTrie(challenge.getEndLetter(), additionalChars);
+
+        // The first columns are the children of the letters themselves
+        install(Side.LEFT, 0, new KeyColumn(new long[] {leftTrie.keyOf(FrontierTrie.ROOT)}, firstLeft,
+            firstLeft.length));
+        install(Side.RIGHT, 0, new KeyColumn(new long[] {rightTrie.keyOf(FrontierTrie.ROOT)}, firstRight,
+            firstRight.length));
+    }
+
+    /**
+     * Checks that a depth can be played with the given expansion settings.
+     * @param depth number of columns per side
+     * @param countPerBase number of items generated per selected item
+     * @param additionalChars number of characters added per column
+     * @throws IllegalArgumentException if any setting is not positive, or the
+     *                                  innermost strings would not fit in a packed key
+     */
+    public static void checkSettings(int depth, int countPerBase, int additionalChars) {
+        if (depth <= 0) {
+            throw new IllegalArgumentException("Depth must be positive");
+        }
+        if (countPerBase <= 0) {
+            throw new IllegalArgumentException("Counts must be positive");
+        }
+        if (additionalChars <= 0) {
+            throw new IllegalArgumentException("Additional characters must be positive");
+        }
+        if (1 + (long) depth * additionalChars > PackedKey.MAX_LENGTH) {
+            throw new IllegalArgumentException("Chains longer than " + PackedKey.MAX_LENGTH
+                + " characters are not supported");
+        }
+    }
+
+    /**
+     * Generates the first left column after checking its size.
+     * @param challenge the challenge to play
+     * @param firstColumnCount number of items in the first column
+     * @param additionalChars number of characters added per column
+     * @return packed keys of the first left column
+     * @throws IllegalArgumentException if firstColumnCount is not positive
+     */
+    private static long[] firstLeftColumn(Challenge challenge, int firstColumnCount, int additionalChars) {
+        if (firstColumnCount <= 0) {
+            throw new IllegalArgumentException("Counts must be positive");
+        }
+        return challenge.firstLeftColumn(firstColumnCount, additionalChars);
+    }
+
+    /**
+     * @return the challenge being played
+     */
+    public Challenge getChallenge() {
+        return challenge;
+    }
+
+    /**
+     * @return the number of columns per side
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the packed keys of a column.
+     * @param side the side of the column
+     * @param column the column index, 0 for the outermost column
+     * @return the keys of the column (not copied; do not modify)
+     */
+    public long[] getColumn(Side side, int column) {
+        return columns(side)[checkColumn(column)].keys();
+    }
+
+    /**
+     * Returns the packed keys of the items selected in a column.
+     * @param side the side of the column
+     * @param column the column index, 0 for the outermost column
+     * @return the selected keys (not copied; do not modify)
+     */
+    public long[] getSelection(Side side, int column) {
+        return selections(side)[checkColumn(column)];
+    }
+
+    /**
+     * Generates the column that follows a selection, without changing the
+     * pipeline. The result depends only on the challenge seed and the selected
+     * keys, so it is safe to call from any thread. Bases that were selected
+     * before are served from the expansion cache.
+     * @param side the side of the selection
+     * @param column the column the keys were selected in
+     * @param selectedKeys packed keys of the selected items
+     * @return column + 1 with the bases it came from, or an empty column if column is the innermost
+     */
+    public KeyColumn expand(Side side, int column, long[] selectedKeys) {
+        checkColumn(column);
+        if (column == depth - 1 || selectedKeys.length == 0) {
+            return EMPTY_COLUMN;
+        }
+        return expansionCache.expand(selectedKeys, countPerBase, additionalChars, side == Side.RIGHT,
+            challenge.getSeed());
+    }
+
+    /**
+     * Records a selection and installs the column generated from it. Columns
+     * after the new one are emptied, since they were generated from a selection
+     * that no longer exists; columns before it are left untouched.
+     * @param side the side of the selection
+     * @param column the column the keys were selected in
+     * @param selectedKeys packed keys of the selected items (not copied)
+     * @param nextColumn the result of {@link #expand} for the same selection (not copied)
+     * @return the index of the first column whose contents changed, or -1 if none did
+     * @throws IllegalArgumentException if a selected key is not in the column, or
+     *                                  nextColumn was not expanded from the selection;
+     *                                  the pipeline is then left unchanged
+     */
+    public int apply(Side side, int column, long[] selectedKeys, KeyColumn nextColumn) {
+        checkSelection(side, column, selectedKeys);
+        if (column < depth - 1) {
+            checkExpansion(selectedKeys, nextColumn);
+        }
+        long[][] selections = selections(side);
+        selections[column] = selectedKeys;
+        if (column == depth - 1) {
+            return -1;
+        }
+
+        install(side, column + 1, nextColumn);
+        for (int k = column + 1; k < depth; k++) {
+            selections[k] = EMPTY;
+            if (k > column + 1) {
+                install(side, k, EMPTY_COLUMN);
+            }
+        }
+        return column + 1;
+    }
+
+    /**
+     * Convenience for callers that do not need the expansion off-thread:
+     * expands a selection and applies the result.
+     * @param side the side of the selection
+     * @param column the column the keys were selected in
+     * @param selectedKeys packed keys of the selected items
+     * @return the index of the first column whose contents changed, or -1 if none did
+     * @throws IllegalArgumentException if a selected key is not in the column
+     */
+    public int select(Side side, int column, long[] selectedKeys) {
+        return apply(side, column, selectedKeys, expand(side, column, selectedKeys));
+    }
+
+    /**
+     * Checks that every key of a selection is an item of the column, so a
+     * selection that did not come from the column is rejected before anything
+     * is changed.
+     * @param side the side of the selection
+     * @param column the column the keys were selected in
+     * @param selectedKeys packed keys of the selected items
+     * @throws IllegalArgumentException if the column is outside the pipeline
+     *                                  or a key is not in it
+     */
+    public void checkSelection(Side side, int column, long[] selectedKeys) {
+        KeyColumn contents = columns(side)[checkColumn(column)];
+        for (long key : selectedKeys) {
+            if (!contents.contains(key)) {
+                throw new IllegalArgumentException(PackedKey.decode(key) + " is not in column " + column);
+            }
+        }
+    }
+
+    /**
+     * Checks that a column was expanded from a selection: every base it was
+     * generated from must be one of the selected keys.
+     * @param selectedKeys packed keys of the selected items
+     * @param nextColumn the column to install after them
+     * @throws IllegalArgumentException if nextColumn is missing or has a base that was not selected
+     */
+    private static void checkExpansion(long[] selectedKeys, KeyColumn nextColumn) {
+        if (nextColumn == null) {
+            throw new IllegalArgumentException("No column expanded from the selection");
+        }
+        if (nextColumn.baseCount() == 0) {
+            return;
+        }
+        LongHashSet selected = new LongHashSet(selectedKeys.length);
+        for (long key : selectedKeys) {
+            selected.add(key);
+        }
+        for (int b = 0; b < nextColumn.baseCount(); b++) {
+            if (!selected.contains(nextColumn.baseAt(b))) {
+                throw new IllegalArgumentException(PackedKey.decode(nextColumn.baseAt(b)) + " was not selected");
+            }
+        }
+    }
+
+    /**
+     * Returns the chain that generated a string, by walking parent pointers in
+     * the side's trie rather than reading the current selections.
+     * @param side the side the string was generated on
+     * @param key packed key of the string
+     * @return the strings from the side's letter to the given string, or an
+     *         empty list if the string was never generated on that side
+     */
+    public List<String> pathTo(Side side, long key) {
+        return trie(side).pathTo(key);
+    }
+
+    /**
+     * Returns the first string the two innermost columns share. The answer is
+     * cached until one of the innermost columns changes.
+     * @return the first meeting string in the order keys entered the left column, or null if there is none
+     */
+    public String findMatch() {
+        if (matchDirty) {
+            cachedMatch = matchEngine.findFirstMatch();
+            matchDirty = false;
+        }
+        return cachedMatch;
+    }
+
+    /**
+     * Returns every string the two innermost columns share.
+     * @return the meeting strings in the order they entered the left column
+     */
+    public List<String> findMatches() {
+        return matchEngine.findMatches();
+    }
+
+    /**
+     * Puts a column in place, adds its new strings to the side's trie, and
+     * passes any change to the innermost column on to the match engine.
+     * @param side the side of the column
+     * @param column the column index
+     * @param contents the new contents of the column
+     */
+    private void install(Side side, int column, KeyColumn contents) {
+        KeyColumn[] columns = columns(side);
+        KeyColumn old = columns[column];
+        columns[column] = contents;
+        addToTrie(trie(side), contents);
+        if (column == depth - 1) {
+            updateFrontier(side, old, contents);
+        }
+    }
+
+    /**
+     * Adds the children of every base not seen before to a trie. A base's
+     * children always enter the trie together, so checking the first is enough.
+     * @param trie the trie to add to
+     * @param contents the column to add
+     */
+    private static void addToTrie(FrontierTrie trie, KeyColumn contents) {
+        int perBase = contents.childrenPerBase();
+        long[] keys = contents.keys();
+        for (int b = 0; b < contents.baseCount(); b++) {
+            int from = b * perBase;
+            if (perBase > 0 && !trie.contains(keys[from])) {
+                for (int i = from; i < from + perBase; i++) {
+                    trie.add(keys[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells the match engine which keys left and entered an innermost column.
+     * Children are determined by their base, so only the children of bases
+     * that were dropped or added are touched; bases in both columns are skipped.
+     * @param side the side of the column
+     * @param old the previous contents of the column
+     * @param contents the new contents of the column
+     */
+    private void updateFrontier(Side side, KeyColumn old, KeyColumn contents) {
+        if (old == contents || (old.size() == 0 && contents.size() == 0)) {
+            return;
+        }
+        LongHashSet oldBases = basesOf(old);
+        LongHashSet newBases = basesOf(contents);
+        for (int b = 0; b < old.baseCount(); b++) {
+            if (!newBases.contains(old.baseAt(b))) {
+                int from = b * old.childrenPerBase();
+                if (side == Side.LEFT) {
+                    matchEngine.removeLeft(old.keys(), from, from + old.childrenPerBase());
+                } else {
+                    matchEngine.removeRight(old.keys(), from, from + old.childrenPerBase());
+                }
+            }
+        }
+        for (int b = 0; b < contents.baseCount(); b++) {
+            if (!oldBases.contains(contents.baseAt(b))) {
+                int from = b * contents.childrenPerBase();
+                if (side == Side.LEFT) {
+                    matchEngine.addLeft(contents.keys(), from, from + contents.childrenPerBase());
+                } else {
+                    matchEngine.addRight(contents.keys(), from, from + contents.childrenPerBase());
+                }
+            }
+        }
+        matchDirty = true;
+    }
+
+    /**
+     * @param column a column
+     * @return the set of bases the column was generated from
+     */
+    private static LongHashSet basesOf(KeyColumn column) {
+        LongHashSet bases = new LongHashSet(column.baseCount());
+        for (int b = 0; b < column.baseCount(); b++) {
+            bases.add(column.baseAt(b));
+        }
+        return bases;
+    }
+
+    /**
+     * @param side a side
+     * @return the columns of that side
+     */
+    private KeyColumn[] columns(Side side) {
+        return side == Side.LEFT ? leftColumns : rightColumns;
+    }
+
+    /**
+     * @param side a side
+     * @return the trie of that side
+     */
+    private FrontierTrie trie(Side side) {
+        return side == Side.LEFT ? leftTrie : rightTrie;
+    }
+
+    /**
+     * @param side a side
+     * @return the selections of that side
+     */
+    private long[][] selections(Side side) {
+        return side == Side.LEFT ? leftSelections : rightSelections;
+    }
+
+    /**
+     * Checks a column index.
+     * @param column the column index
+     * @return the column index
+     * @throws IllegalArgumentException if the column is outside the pipeline
+     */
+    private int checkColumn(int column) {
+        if (column < 0 || column >= depth) {
+            throw new IllegalArgumentException("Column " + column + " is outside a pipeline of depth " + depth);
+        }
+        return column;
+    }
+}
@@ -0,0 +1,195 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the children generated for each base key, so selecting an item
+ * again reuses its column instead of generating it again.
+ * <p>
+ * Seeded expansion gives every base the same children whatever else is
+ * selected with it, so a column can be assembled base by base from cached
+ * entries and is identical to the column {@link ListCreator} would generate
+ * for the whole selection. Entries are keyed by base key and direction; the
+ * count per base, additional characters and seed are fixed per challenge, and
+ * the cache empties itself if they change. Memory is bounded by the total
+ * number of cached child keys, evicting the least recently used bases first.
+ * <p>
+ * The cache is safe to use from several threads; children are generated
+ * outside the lock.
+ */
+public class ExpansionCache {
+
+    /** Default limit on the number of cached child keys (8 MiB of keys). */
+    public static final int DEFAULT_MAX_KEYS = 1 << 20;
+
+    private final int maxKeys;
+    private final LinkedHashMap<Long, long[]> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private int cachedKeys;
+
+    // Parameters the cached entries were generated with
+    private int countPerBase = -1;
+    private int additionalChars = -1;
+    private long seed;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a cache holding up to DEFAULT_MAX_KEYS child keys.
+     */
+    public ExpansionCache() {
+        this(DEFAULT_MAX_KEYS);
+    }
+
+    /**
+     * Creates a cache with a custom size limit.
+     * @param maxKeys the largest number of child keys to keep
+     * @throws IllegalArgumentException if maxKeys is negative
+     */
+    public ExpansionCache(int maxKeys) {
+        if (maxKeys < 0) {
+            throw new IllegalArgumentException("Cache size cannot be negative");
+        }
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Expands a selection, reusing the cached children of bases that were
+     * expanded before with the same settings. Missing bases are generated
+     * together in one batch.
+     * @param baseKeys packed base strings (must be non-empty keys)
+     * @param countPerBase number of keys to generate per base key
+     * @param additionalChars number of random characters to add
+     * @param prepend true to prepend uppercase letters, false to append
+     * @param seed the challenge seed
+     * @return the distinct bases and their children, in base order
+     * @throws IllegalArgumentException if the arguments are rejected by {@link ListCreator}
+     */
+    public KeyColumn expand(long[] baseKeys, int countPerBase, int additionalChars, boolean prepend, long seed) {
+        if (baseKeys == null || baseKeys.length == 0) {
+            throw new IllegalArgumentException("Base keys cannot be null or empty");
+        }
+        LongHashSet distinct = new LongHashSet(baseKeys.length);
+        for (long base : baseKeys) {
+            distinct.add(base);
+        }
+        long[] bases = distinct.toArray();
+
+        long[][] children = new long[bases.length][];
+        LongHashSet missing = new LongHashSet();
+        synchronized (this) {
+            adopt(countPerBase, additionalChars, seed);
+            for (int b = 0; b < bases.length; b++) {
+                children[b] = entries.get(entryKey(bases[b], prepend));
+                if (children[b] == null) {
+                    missing.add(bases[b]);
+                }
+            }
+            hits += bases.length - missing.size();
+            misses += missing.size();
+        }
+
+        if (!missing.isEmpty()) {
+            KeyColumn generated = ListCreator.expandBatch(missing.toArray(), countPerBase, additionalChars,
+                prepend, seed);
+            for (int b = 0, m = 0; b < bases.length; b++) {
+                if (children[b] == null) {
+                    children[b] = generated.childrenOf(m++);
+                }
+            }
+
+            synchronized (this) {
+                if (this.countPerBase == countPerBase && this.additionalChars == additionalChars
+                        && this.seed == seed) {
+                    for (int b = 0; b < bases.length; b++) {
+                        if (missing.contains(bases[b])) {
+                            put(entryKey(bases[b], prepend), children[b]);
+                        }
+                    }
+                }
+            }
+        }
+
+        // Every base has the same number of children, and children of distinct bases never coincide
+        int perBase = children[0].length;
+        long[] keys = new long[bases.length * perBase];
+        for (int b = 0; b < bases.length; b++) {
+            System.arraycopy(children[b], 0, keys, b * perBase, perBase);
+        }
+        return new KeyColumn(bases, keys, perBase);
+    }
+
+    /**
+     * Empties the cache, for example when a new challenge starts.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        cachedKeys = 0;
+    }
+
+    /**
+     * @return the number of bases whose children were served from the cache
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return the number of bases whose children had to be generated
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return the number of child keys currently cached
+     */
+    public synchronized int getCachedKeys() {
+        return cachedKeys;
+    }
+
+    /**
+     * Clears the cache if it holds entries generated with other settings.
+     * @param newCountPerBase number of keys generated per base key
+     * @param newAdditionalChars number of random characters added
+     * @param newSeed the challenge seed
+     */
+    private void adopt(int newCountPerBase, int newAdditionalChars, long newSeed) {
+        if (countPerBase != newCountPerBase || additionalChars != newAdditionalChars || seed != newSeed) {
+            clear();
+            countPerBase = newCountPerBase;
+            additionalChars = newAdditionalChars;
+            seed = newSeed;
+        }
+    }
+
+    /**
+     * Stores the children of one base, evicting the least recently used
+     * bases until the cache is back under its size limit.
+     * @param key the entry key
+     * @param children the children of the base
+     */
+    private void put(Long key, long[] children) {
+        if (children.length > maxKeys) {
+            return;
+        }
+        long[] previous = entries.put(key, children);
+        cachedKeys += children.length - (previous == null ? 0 : previous.length);
+        Iterator<Map.Entry<Long, long[]>> eldest = entries.entrySet().iterator();
+        while (cachedKeys > maxKeys && eldest.hasNext()) {
+            cachedKeys -= eldest.next().getValue().length;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Combines a base key and a direction into one map key. Keys are at most
+     * 60 bits, so the direction fits in the low bit.
+     * @param base the packed base string
+     * @param prepend true for the prepending direction
+     * @return the map key
+     */
+    private static Long entryKey(long base, boolean prepend) {
+        return (base << 1) | (prepend ? 1 : 0);
+    }
+}
@@ -0,0 +1,283 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Stores every string generated on one side of a game as a tree rooted at
+ * that side's letter. On the left side each string extends its parent at the
+ * end (a prefix trie, as in {@link ListCreator#appendRandomChars}); on the
+ * right side it extends its parent at the start (a suffix trie, as in
+ * {@link ListCreator#prependRandomChars}). A node only holds its parent and
+ * the characters on the edge to it, so children share everything else with
+ * their parents and memory grows with the number of distinct edges rather
+ * than with the total length of the strings.
+ * <p>
+ * Nodes are found by the {@link PackedKey} of their string, and the chain
+ * from the letter to any string is rebuilt by walking parent pointers.
+ */
+public class FrontierTrie {
+
+    /** Node id of the root (the side's letter). */
+    public static final int ROOT = 0;
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private final long rootKey;
+    private final int rootLength;
+    private final int additionalChars;
+    private final boolean suffix;
+
+    // Node columns: parent node id and the packed characters on the edge from the parent
+    private int[] parents;
+    private long[] labels;
+    private int size;
+
+    // Open-addressing index from a node's key to its id plus one (0 marks an empty slot)
+    private long[] slotKeys;
+    private int[] slotNodes;
+
+    /**
+     * Creates a trie holding only its root.
+     * @param rootKey packed key of the root string
+     * @param additionalChars number of characters on every edge
+     * @param suffix true if children extend their parents at the start
+     * @throws IllegalArgumentException if the root is empty or additionalChars is not positive
+     */
+    private FrontierTrie(long rootKey, int additionalChars, boolean suffix) {
+        if (rootKey == 0) {
+            throw new IllegalArgumentException("Root cannot be empty");
+        }
+        if (additionalChars <= 0) {
+            throw new IllegalArgumentException("Additional characters must be positive");
+        }
+        this.rootKey = rootKey;
+        this.rootLength = PackedKey.length(rootKey);
+        this.additionalChars = additionalChars;
+        this.suffix = suffix;
+        parents = new int[16];
+        labels = new long[16];
+        slotKeys = new long[32];
+        slotNodes = new int[32];
+        newNode(rootKey, -1, 0);
+    }
+
+    /**
+     * Creates a prefix trie for the left side of a game.
+     * @param startLetter the start letter (the root)
+     * @param additionalChars number of characters appended per column
+     * @return an empty trie rooted at the start letter
+     * @throws IllegalArgumentException if the letter cannot be packed or additionalChars is not positive
+     */
+    public static FrontierTrie prefixTrie(char startLetter, int additionalChars) {
+        return new FrontierTrie(encodeLetter(startLetter), additionalChars, false);
+    }
+
+    /**
+     * Creates a suffix trie for the right side of a game.
+     * @param endLetter the end letter (the root)
+     * @param additionalChars number of characters prepended per column
+     * @return an empty trie rooted at the end letter
+     * @throws IllegalArgumentException if the letter cannot be packed or additionalChars is not positive
+     */
+    public static FrontierTrie suffixTrie(char endLetter, int additionalChars) {
+        return new FrontierTrie(encodeLetter(endLetter), additionalChars, true);
+    }
+
+    /**
+     * Adds a string and any missing ancestors. Adding a string that is
+     * already present returns its existing node.
+     * @param key packed key of the string
+     * @return the node id of the string
+     * @throws IllegalArgumentException if the string does not extend the root
+     *                                  by a whole number of edges
+     */
+    public int add(long key) {
+        int node = find(key);
+        if (node >= 0) {
+            return node;
+        }
+        int extra = PackedKey.length(key) - rootLength;
+        if (extra <= 0 || extra % additionalChars != 0) {
+            throw new IllegalArgumentException(PackedKey.decode(key) + " does not extend "
+                + PackedKey.decode(rootKey));
+        }
+        int keep = extra - additionalChars + rootLength;
+        long parentKey = suffix ? PackedKey.dropFirst(key, additionalChars) : PackedKey.dropLast(key, additionalChars);
+        long label = suffix ? PackedKey.dropLast(key, keep) : PackedKey.dropFirst(key, keep);
+        return newNode(key, add(parentKey), label);
+    }
+
+    /**
+     * Adds every string of a column.
+     * @param keys packed keys of the strings
+     */
+    public void addAll(long[] keys) {
+        for (long key : keys) {
+            add(key);
+        }
+    }
+
+    /**
+     * Looks up the node of a string.
+     * @param key packed key of the string
+     * @return the node id, or -1 if the string is not in the trie
+     */
+    public int find(long key) {
+        int mask = slotKeys.length - 1;
+        int slot = LongHashSet.mix(key) & mask;
+        while (slotNodes[slot] != 0) {
+            if (slotKeys[slot] == key) {
+                return slotNodes[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @param key packed key of a string
+     * @return true if the string is in the trie
+     */
+    public boolean contains(long key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @param node a node id
+     * @return the parent's node id, or -1 for the root
+     */
+    public int parentOf(int node) {
+        return parents[checkNode(node)];
+    }
+
+    /**
+     * Returns the number of edges between the root and a node.
+     * @param node a node id
+     * @return 0 for the root, 1 for the first column, and so on
+     */
+    public int depthOf(int node) {
+        int depth = 0;
+        for (int n = checkNode(node); n != ROOT; n = parents[n]) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Rebuilds the key of a node from the edges on its path.
+     * @param node a node id
+     * @return the packed key of the node's string
+     */
+    public long keyOf(int node) {
+        if (checkNode(node) == ROOT) {
+            return rootKey;
+        }
+        long parentKey = keyOf(parents[node]);
+        return suffix ? PackedKey.concat(labels[node], parentKey) : PackedKey.concat(parentKey, labels[node]);
+    }
+
+    /**
+     * Returns the chain of strings from the root to a string, by walking
+     * parent pointers up from the string.
+     * @param key packed key of the string
+     * @return the strings from the root to the given string, or an empty list
+     *         if the string is not in the trie
+     */
+    public List<String> pathTo(long key) {
+        int node = find(key);
+        List<String> path = new ArrayList<>();
+        for (int n = node; n >= 0; n = parents[n]) {
+            path.add(PackedKey.decode(keyOf(n)));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * @return the number of nodes, including the root
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Appends a node and indexes it by its key.
+     * @param key packed key of the node's string
+     * @param parent the parent's node id, or -1 for the root
+     * @param label packed characters on the edge from the parent
+     * @return the new node id
+     */
+    private int newNode(long key, int parent, long label) {
+        if (size == parents.length) {
+            parents = Arrays.copyOf(parents, size * 2);
+            labels = Arrays.copyOf(labels, size * 2);
+        }
+        int node = size++;
+        parents[node] = parent;
+        labels[node] = label;
+        if (size > slotKeys.length * LOAD_FACTOR) {
+            rehash(slotKeys.length * 2);
+        }
+        insertSlot(key, node);
+        return node;
+    }
+
+    /**
+     * Writes a key into the first free slot of its probe sequence.
+     * @param key the key
+     * @param node its node id
+     */
+    private void insertSlot(long key, int node) {
+        int mask = slotKeys.length - 1;
+        int slot = LongHashSet.mix(key) & mask;
+        while (slotNodes[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slotKeys[slot] = key;
+        slotNodes[slot] = node + 1;
+    }
+
+    /**
+     * Grows the index and reinserts every key.
+     * @param newLength the new index length (a power of two)
+     */
+    private void rehash(int newLength) {
+        long[] oldKeys = slotKeys;
+        int[] oldNodes = slotNodes;
+        slotKeys = new long[newLength];
+        slotNodes = new int[newLength];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldNodes[i] != 0) {
+                insertSlot(oldKeys[i], oldNodes[i] - 1);
+            }
+        }
+    }
+
+    /**
+     * Checks a node id.
+     * @param node the node id
+     * @return the node id
+     * @throws IllegalArgumentException if there is no such node
+     */
+    private int checkNode(int node) {
+        if (node < 0 || node >= size) {
+            throw new IllegalArgumentException("No node " + node + " in a trie of " + size);
+        }
+        return node;
+    }
+
+    /**
+     * Packs a single letter.
+     * @param letter the letter
+     * @return its packed key
+     * @throws IllegalArgumentException if the letter is not A-Z or a-z
+     */
+    private static long encodeLetter(char letter) {
+        String s = String.valueOf(letter);
+        if (!PackedKey.canEncode(s)) {
+            throw new IllegalArgumentException("Not a letter: " + letter);
+        }
+        return PackedKey.encode(s);
+    }
+}
@@ -1,7 +1,16 @@
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
-import java.util.HashSet;
-import java.util.Set;
+import java.awt.Dimension;
+import java.awt.GridLayout;
+import java.awt.Point;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Main GUI class for The Wiki Game application.
@@ -25,36 +34,138 @@ public class GUI extends JFrame {
     private JLabel messageLabel;
     private JTextField messageArea;
 
-    private char startLetter;
-    private char endLetter;
+    // Fewest letters a row is sized for; rows grow to fit the innermost strings of deeper games
+    private static final int MIN_PROTOTYPE_LENGTH = 6;
+
+    // Expansion settings: items per selected item, letters added per column
+    private static final int COUNT_PER_BASE = 5;
+    private static final int ADDITIONAL_CHARS = 1;
+
+    /** Number of columns per side laid out in the form. */
+    public static final int DEFAULT_DEPTH = 3;
+
+    // Horizontal gap between the columns of a section, as in the form
+    private static final int COLUMN_GAP = 10;
+
+    // Gap between the metrics overlay and the timer label
+    private static final int OVERLAY_GAP = 20;
+
+    // Columns per side, and the lists showing them from the outermost to the innermost column
+    private final int depth;
+    private final List<JList<String>> leftLists = new ArrayList<>();
+    private final List<JList<String>> rightLists = new ArrayList<>();
+
+    // The game being played; null until the first challenge starts
+    private GameSession session;
+
+    // Children generated for each selected base, reused until the next challenge
+    private final ExpansionCache expansionCache = new ExpansionCache();
+
+    // Solvable challenges prepared in the background, so a new challenge starts at once
+    private final ChallengePool challengePool;
+
+    // Persistent record of challenges and solves; null if the log could not be opened
+    private ChallengeLog challengeLog;
+
+    // Drives the timer label and other once-a-second updates
+    private final GameClock gameClock;
+
+    // Chance of a match with the game's settings; null until it has been loaded in the background
+    private volatile ReachabilityIndex reachabilityIndex;
+
+    // Type-ahead filter of each list, which also holds the list's full contents
+    private final Map<JList<String>, ColumnFilter> filters = new HashMap<>();
+
+    // Scores candidate items by the meeting strings they can still reach
+    private final HintEngine hintEngine;
+
+    // The hint job in flight, if any, and whether columns are shown in hint order
+    private SwingWorker<HintEngine.Hints[][], Void> hintJob;
+    private boolean sortByHints;
+
+    // In-flight background jobs, keyed by the list they will populate
+    private final Map<JList<String>, SwingWorker<KeyColumn, Void>> pendingJobs = new HashMap<>();
 
     /**
      * Constructor for GUI class.
      * Initializes the window and sets up all components and event handlers.
      */
     public GUI() {
+        this(DEFAULT_DEPTH);
+    }
+
+    /**
+     * Creates the window with a custom number of columns per side.
+     * @param depth number of columns per side
+     * @throws IllegalArgumentException if depth is not positive, or the innermost
+     *                                  strings would be too long to play
+     */
+    public GUI(int depth) {
+        ColumnPipeline.checkSettings(depth, COUNT_PER_BASE, ADDITIONAL_CHARS);
+        this.depth = depth;
+        hintEngine = new HintEngine(depth, ADDITIONAL_CHARS);
+
         setContentPane(rootPanel);
+        gameClock = new GameClock(timerLabel);
         setTitle("CS 242 Project - Zak Konik, Trenton Scott");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setSize(800, 600);
         setLocationRelativeTo(null);
 
-        // Initialize the lists with sample data
+        // Lay out one list per column and give each an empty model
+        createColumns();
         initializeLists();
+        installHintMenu();
 
         // Create bottom panel if not created by form
         createBottomPanelIfNeeded();
 
+        openChallengeLog();
+        loadReachabilityIndex();
+        challengePool = new ChallengePool(ChallengePool.DEFAULT_CAPACITY, Challenge.FIRST_COLUMN_COUNT,
+            COUNT_PER_BASE, ADDITIONAL_CHARS, Math.min(ChallengePool.MIN_SOLUTION_DEPTH, depth), depth);
+        if (Metrics.ENABLED) {
+            installMetricsOverlay();
+        }
+
         // event handlers
         newChallengeButton.addActionListener(e -> handleNewChallenge());
 
         // listeners to all lists
-        listL1.addListSelectionListener(e -> handleLeftColumn1Selection());
-        listL2.addListSelectionListener(e -> handleLeftColumn2Selection());
-        listL3.addListSelectionListener(e -> handleLeftColumn3Selection());
-        listR3.addListSelectionListener(e -> handleRightColumn1Selection());
-        listR2.addListSelectionListener(e -> handleRightColumn2Selection());
-        listR1.addListSelectionListener(e -> handleRightColumn3Selection());
+        for (int k = 0; k < depth; k++) {
+            int column = k;
+            leftLists.get(k).addListSelectionListener(e -> handleSelection(ColumnPipeline.Side.LEFT, column));
+            rightLists.get(k).addListSelectionListener(e -> handleSelection(ColumnPipeline.Side.RIGHT, column));
+        }
+    }
+
+    /**
+     * Collects the list of each column. At the default depth these are the
+     * lists laid out in the form; otherwise both sections are rebuilt with one
+     * scrolling list per column, the right section running from its innermost
+     * column to its outermost so the two sides still meet in the middle.
+     */
+    private void createColumns() {
+        if (depth == DEFAULT_DEPTH) {
+            leftLists.addAll(List.of(listL1, listL2, listL3));
+            rightLists.addAll(List.of(listR3, listR2, listR1));
+            return;
+        }
+
+        for (int k = 0; k < depth; k++) {
+            leftLists.add(new JList<>());
+            rightLists.add(new JList<>());
+        }
+        leftSection.removeAll();
+        leftSection.setLayout(new GridLayout(1, depth, COLUMN_GAP, 0));
+        for (JList<String> list : leftLists) {
+            leftSection.add(new JScrollPane(list));
+        }
+        rightSection.removeAll();
+        rightSection.setLayout(new GridLayout(1, depth, COLUMN_GAP, 0));
+        for (int k = depth - 1; k >= 0; k--) {
+            rightSection.add(new JScrollPane(rightLists.get(k)));
+        }
     }
 
     /**
@@ -79,60 +190,199 @@ public class GUI extends JFrame {
     }
 
     /**
-     * Initializes all list components with their data models.
+     * Shows a live summary of the metrics just left of the timer label.
+     * The label floats on the frame's layered pane rather than joining the
+     * header layout, so the form is unchanged when metrics are off.
      */
-    private void initializeLists() {
-        // Initialize left section lists
-        DefaultListModel<String> model1 = new DefaultListModel<>();
-        listL1.setModel(model1);
+    private void installMetricsOverlay() {
+        JLabel overlay = new JLabel();
+        overlay.setForeground(timerLabel.getForeground());
+        JLayeredPane layers = getLayeredPane();
+        layers.add(overlay, JLayeredPane.PALETTE_LAYER);
+
+        // Refreshed on the clock's tick rather than by a timer of its own
+        gameClock.addTickListener(() -> {
+            overlay.setText(Metrics.summary());
+            Dimension size = overlay.getPreferredSize();
+            Point timer = SwingUtilities.convertPoint(timerLabel.getParent(), timerLabel.getLocation(), layers);
+            overlay.setBounds(timer.x - size.width - OVERLAY_GAP, timer.y, size.width, size.height);
+        });
+    }
 
-        DefaultListModel<String> model2 = new DefaultListModel<>();
-        listL2.setModel(model2);
+    /**
+     * Opens the challenge log and arranges for it to be closed with the window.
+     * The game still works without a log if the file cannot be opened.
+     */
+    private void openChallengeLog() {
+        try {
+            challengeLog = new ChallengeLog(ChallengeLog.defaultPath());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Challenge log disabled: " + e.getMessage());
+            return;
+        }
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                try {
+                    challengeLog.close();
+                } catch (IOException ex) {
+                    System.err.println("Could not close challenge log: " + ex.getMessage());
+                }
+            }
+        });
+    }
 
-        DefaultListModel<String> model3 = new DefaultListModel<>();
-        listL3.setModel(model3);
+    /**
+     * Loads the reachability index (building and caching it on first use) on a
+     * background thread, so the window opens immediately. Until it is ready,
+     * challenges are shown without their match chance. The number of trials
+     * shrinks with the depth, so building takes seconds even for deep games.
+     */
+    private void loadReachabilityIndex() {
+        int trials = ReachabilityIndex.trialsFor(Challenge.FIRST_COLUMN_COUNT, COUNT_PER_BASE, depth);
+        Thread loader = new Thread(() -> reachabilityIndex = ReachabilityIndex.loadOrBuild(
+            ReachabilityIndex.defaultCacheDir(), Challenge.FIRST_COLUMN_COUNT, COUNT_PER_BASE,
+            ADDITIONAL_CHARS, depth, trials), "reachability-index");
+        loader.setDaemon(true);
+        loader.start();
+    }
 
-        // Initialize right section lists
-        DefaultListModel<String> modelR1 = new DefaultListModel<>();
-        listR1.setModel(modelR1);
+    /**
+     * Initializes all list components with their data models.
+     */
+    private void initializeLists() {
+        for (JList<String> list : leftLists) {
+            initializeList(list, false);
+        }
+        for (JList<String> list : rightLists) {
+            initializeList(list, true);
+        }
+    }
 
-        DefaultListModel<String> modelR2 = new DefaultListModel<>();
-        listR2.setModel(modelR2);
+    /**
+     * Gives a list an empty bulk model, a fixed cell size and a type-ahead filter.
+     * With a prototype value Swing sizes every row from that one value
+     * instead of measuring each element, so only visible rows are ever read.
+     * The prototype is as long as the innermost strings of the game's depth,
+     * in wide letters, so no column clips its items.
+     * @param list the list to initialize
+     * @param suffix true if the filter matches the ends of items, as on the right side
+     */
+    private void initializeList(JList<String> list, boolean suffix) {
+        list.setModel(new BulkListModel());
+        list.setPrototypeCellValue("W".repeat(Math.max(MIN_PROTOTYPE_LENGTH, 1 + depth * ADDITIONAL_CHARS)));
+        list.setCellRenderer(new HintCellRenderer());
+        ColumnFilter filter = new ColumnFilter(list, suffix);
+        filter.install();
+        filters.put(list, filter);
+    }
 
-        DefaultListModel<String> modelR3 = new DefaultListModel<>();
-        listR3.setModel(modelR3);
+    /**
+     * Gives every list a context menu with the option to show the columns in
+     * hint order, best candidates first.
+     */
+    private void installHintMenu() {
+        JCheckBoxMenuItem sortItem = new JCheckBoxMenuItem("Sort by hint");
+        sortItem.addActionListener(e -> {
+            sortByHints = sortItem.isSelected();
+            if (session != null) {
+                refreshHints();
+            }
+        });
+        JPopupMenu menu = new JPopupMenu();
+        menu.add(sortItem);
+        for (JList<String> list : leftLists) {
+            list.setComponentPopupMenu(menu);
+        }
+        for (JList<String> list : rightLists) {
+            list.setComponentPopupMenu(menu);
+        }
     }
 
     /**
      * Handles the "New Challenge" button click event.
-     * Resets the game state and generates new random data.
+     * Resets the game state and starts a pooled challenge, or draws one if
+     * the pool has nothing ready.
      */
     private void handleNewChallenge() {
+        ChallengePool.Entry entry = challengePool.poll();
+        if (entry != null) {
+            startChallenge(entry);
+        } else {
+            startChallenge(Challenge.random());
+        }
+    }
+
+    /**
+     * Starts a challenge, resetting the game state. Every column is generated
+     * from the challenge seed, so starting the same challenge again and making
+     * the same selections shows exactly the same lists.
+     * @param newChallenge the challenge to play
+     */
+    public void startChallenge(Challenge newChallenge) {
+        startSession(new GameSession(newChallenge, depth, Challenge.FIRST_COLUMN_COUNT, COUNT_PER_BASE,
+            ADDITIONAL_CHARS, expansionCache), null);
+    }
+
+    /**
+     * Starts a challenge taken from the pool, whose first columns are already generated.
+     * @param entry the pooled challenge to play
+     */
+    public void startChallenge(ChallengePool.Entry entry) {
+        startSession(new GameSession(entry, depth, COUNT_PER_BASE, ADDITIONAL_CHARS, expansionCache),
+            entry.getSolution());
+    }
+
+    /**
+     * Replaces the game being played, resetting the lists, titles and clock.
+     * @param newSession the session of the new challenge
+     * @param solution the pool's solution of the challenge, or null if it is not known to be solvable
+     */
+    private void startSession(GameSession newSession, ChainSolver.Result solution) {
+        // Drop results that were generated for the previous challenge
+        cancelPendingJobs();
+
         // Clear all lists
         clearAllLists();
 
-        // Reset timer
-        timerLabel.setText("00:00:00");
-
-        // random start and end letters
-        startLetter = Main.randomUpperCaseLetter();
-        endLetter = Main.randomUpperCaseLetter();
-        while (endLetter == startLetter) {
-            endLetter = Main.randomUpperCaseLetter();
-        }
+        // start and end letters come from the challenge seed
+        expansionCache.clear();
+        hintEngine.clear();
+        session = newSession;
+        Challenge newChallenge = session.getChallenge();
+        char startLetter = session.getStartLetter();
+        char endLetter = session.getEndLetter();
 
         // Update titles
         updateBorderTitle(leftSection, "Start: " + startLetter);
         updateBorderTitle(rightSection, "End: " + endLetter);
 
-        // Clear message
+        // Show the seed so the challenge can be replayed with --seed, and how far apart the sides are:
+        // the known solution depth of a pooled challenge, or else the chance that a random one has a match
         if (messageArea != null) {
-            messageArea.setText("");
+            String message = "Challenge seed: " + newChallenge.getSeed();
+            ReachabilityIndex index = reachabilityIndex;
+            if (solution != null) {
+                message += "   Solvable in " + solution.getDepth() + " columns per side";
+            } else if (index != null) {
+                message += String.format("   Match chance: %.0f%%", 100 * index.getMatchProbability());
+                if (index.getTrials() < ReachabilityIndex.DEFAULT_TRIALS) {
+                    // Deep games are estimated from fewer trials, so say how rough the figure is
+                    message += " (from " + index.getTrials() + " trials)";
+                }
+            }
+            messageArea.setText(message);
         }
 
         // Populate first columns
-        populateColumn1();
-        populateColumn6();
+        refreshColumns(ColumnPipeline.Side.LEFT, 0);
+        refreshColumns(ColumnPipeline.Side.RIGHT, 0);
+        refreshHints();
+
+        gameClock.restart();
+        if (challengeLog != null) {
+            challengeLog.logChallenge(newChallenge, depth);
+        }
     }
 
     /**
@@ -152,158 +402,269 @@ public class GUI extends JFrame {
      * Clears all list models.
      */
     private void clearAllLists() {
-        clearList(listL1);
-        clearList(listL2);
-        clearList(listL3);
-        clearList(listR1);
-        clearList(listR2);
-        clearList(listR3);
+        for (JList<String> list : leftLists) {
+            clearList(list);
+        }
+        for (JList<String> list : rightLists) {
+            clearList(list);
+        }
     }
 
     /**
-     * Clears a single list.
+     * Clears a single list, its filter and its hints.
      * @param list the list to clear
      */
     private void clearList(JList<String> list) {
-        DefaultListModel<String> model = (DefaultListModel<String>) list.getModel();
-        model.clear();
+        filters.get(list).clear();
+        ((HintCellRenderer) list.getCellRenderer()).setHints(null);
     }
 
     /**
-     * Populates column 1 (leftmost) with random strings.
+     * Shows the session's columns of one side from a given column inward.
+     * @param side the side to refresh
+     * @param from the first column to refresh
      */
-    private void populateColumn1() {
-        String[] items = Main.generateRandomStrings(10,
-            String.valueOf(startLetter), 1);
-        populateList(listL1, items);
+    private void refreshColumns(ColumnPipeline.Side side, int from) {
+        List<JList<String>> lists = listsOf(side);
+        for (int k = from; k < depth; k++) {
+            populateList(lists.get(k), session.getColumn(side, k));
+        }
     }
 
     /**
-     * Populates column 6 (rightmost) with random strings.
-     * Creates strings of the form yZ where y is a random lowercase letter
-     * and Z is the end letter (uppercase).
+     * Populates a list with packed keys. Strings are only built for the rows
+     * the list actually paints.
+     * The previous selection is cleared and the model is replaced in one step,
+     * so the list is laid out once rather than once per item. If the column
+     * has filter text, only the keys that pass it are shown.
+     * @param list the list to populate
+     * @param keys packed keys of the items to show (not copied)
      */
-    private void populateColumn6() {
-        Set<String> uniqueStrings = new HashSet<>();
-        int attempts = 0;
-        // Generate 10 unique strings of the form yZ (lowercase + uppercase end letter)
-        while (uniqueStrings.size() < 10 && attempts < 30) {
-            String str = String.valueOf(Main.randomLowerCaseLetter()) + endLetter;
-            uniqueStrings.add(str);
-            attempts++;
-        }
-        populateList(listR3, uniqueStrings.toArray(new String[0]));
+    private void populateList(JList<String> list, long[] keys) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        filters.get(list).setKeys(keys);
+        if (Metrics.ENABLED) {
+            Metrics.POPULATE.recordSince(start);
+        }
     }
 
     /**
-     * Populates a list with an array of strings.
-     * @param list the list to populate
-     * @param items the items to add
+     * @param side a side
+     * @return the lists of that side, from the outermost to the innermost column
      */
-    private void populateList(JList<String> list, String[] items) {
-        DefaultListModel<String> model = (DefaultListModel<String>) list.getModel();
-        model.clear();
-        for (String item : items) {
-            model.addElement(item);
-        }
+    private List<JList<String>> listsOf(ColumnPipeline.Side side) {
+        return side == ColumnPipeline.Side.LEFT ? leftLists : rightLists;
     }
 
     /**
-     * Handles selection in left column 1.
+     * Generates the column that follows a selection on a background thread and
+     * applies it to the session in one step on the Event Dispatch Thread, then
+     * shows the columns that changed and checks for a match. A job that is
+     * still running for the same column is cancelled, so only the result of
+     * the latest selection is ever shown.
+     * @param side the side of the selection
+     * @param column the column the keys were selected in
+     * @param selectedKeys packed keys of the selected items
      */
-    private void handleLeftColumn1Selection() {
-        if (!listL1.getValueIsAdjusting()) {
-            java.util.List<String> selected = listL1.getSelectedValuesList();
-            if (!selected.isEmpty()) {
-                String[] items = ListCreator.appendRandomChars(selected, 5, 1);
-                populateList(listL2, items);
-                checkForMatch();
-            }
+    private void expandInBackground(ColumnPipeline.Side side, int column, long[] selectedKeys) {
+        JList<String> target = listsOf(side).get(column + 1);
+        SwingWorker<KeyColumn, Void> previous = pendingJobs.remove(target);
+        if (previous != null) {
+            previous.cancel(true);
         }
+
+        GameSession owner = session;
+        SwingWorker<KeyColumn, Void> job = new SwingWorker<KeyColumn, Void>() {
+            @Override
+            protected KeyColumn doInBackground() {
+                return owner.expand(side, column, selectedKeys);
+            }
+
+            @Override
+            protected void done() {
+                // A newer job for the same column, or a new challenge, replaced this one
+                if (isCancelled() || pendingJobs.get(target) != this || owner != session) {
+                    return;
+                }
+                pendingJobs.remove(target);
+                try {
+                    int changed = session.apply(side, column, selectedKeys, get());
+                    if (changed >= 0) {
+                        refreshColumns(side, changed);
+                        refreshHints();
+                    }
+                    checkForMatch();
+                } catch (InterruptedException | ExecutionException e) {
+                    if (messageArea != null) {
+                        messageArea.setText("Could not generate list: " + e.getMessage());
+                    }
+                }
+            }
+        };
+        pendingJobs.put(target, job);
+        job.execute();
     }
 
     /**
-     * Handles selection in left column 2.
+     * Cancels every background job that has not published its result yet.
      */
-    private void handleLeftColumn2Selection() {
-        if (!listL2.getValueIsAdjusting()) {
-            java.util.List<String> selected = listL2.getSelectedValuesList();
-            if (!selected.isEmpty()) {
-                String[] items = ListCreator.appendRandomChars(selected, 5, 1);
-                populateList(listL3, items);
-                checkForMatch();
-            }
+    private void cancelPendingJobs() {
+        for (SwingWorker<KeyColumn, Void> job : pendingJobs.values()) {
+            job.cancel(true);
+        }
+        pendingJobs.clear();
+        if (hintJob != null) {
+            hintJob.cancel(true);
+            hintJob = null;
         }
     }
 
     /**
-     * Handles selection in left column 3.
+     * Scores the candidate columns of both sides (all but the innermost) on a
+     * background thread, then shows the hints and, if asked, re-sorts the
+     * columns on the Event Dispatch Thread. The engine memoizes by column, so
+     * after a selection only the columns that changed, and the other side's
+     * columns if this side's frontier changed, are scored again.
      */
-    private void handleLeftColumn3Selection() {
-        if (!listL3.getValueIsAdjusting()) {
-            checkForMatch();
+    private void refreshHints() {
+        if (hintJob != null) {
+            hintJob.cancel(true);
+        }
+        GameSession owner = session;
+        ColumnPipeline.Side[] sides = ColumnPipeline.Side.values();
+        long[][][] candidates = new long[sides.length][depth - 1][];
+        long[][] frontiers = new long[sides.length][];
+        for (ColumnPipeline.Side side : sides) {
+            for (int k = 0; k < depth - 1; k++) {
+                candidates[side.ordinal()][k] = owner.getColumn(side, k);
+            }
+            frontiers[side.ordinal()] = owner.getFrontier(side == ColumnPipeline.Side.LEFT
+                ? ColumnPipeline.Side.RIGHT : ColumnPipeline.Side.LEFT);
         }
+        boolean sort = sortByHints;
+
+        SwingWorker<HintEngine.Hints[][], Void> job = new SwingWorker<HintEngine.Hints[][], Void>() {
+            @Override
+            protected HintEngine.Hints[][] doInBackground() {
+                HintEngine.Hints[][] result = new HintEngine.Hints[sides.length][depth - 1];
+                for (ColumnPipeline.Side side : sides) {
+                    int s = side.ordinal();
+                    for (int k = 0; k < depth - 1 && candidates[s][k].length > 0; k++) {
+                        result[s][k] = hintEngine.hints(side, k, candidates[s][k], frontiers[s]);
+                        if (sort) {
+                            result[s][k].orderedKeys();
+                        }
+                    }
+                }
+                return result;
+            }
+
+            @Override
+            protected void done() {
+                // A newer refresh, or a new challenge, replaced this one
+                if (isCancelled() || hintJob != this || owner != session) {
+                    return;
+                }
+                hintJob = null;
+                try {
+                    showHints(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    if (messageArea != null) {
+                        messageArea.setText("Could not compute hints: " + e.getMessage());
+                    }
+                }
+            }
+        };
+        hintJob = job;
+        job.execute();
     }
 
     /**
-     * Handles selection in right column 1 (rightmost).
+     * Shows freshly computed hints, and puts each column in hint order or back
+     * in its generated order as chosen. Columns that changed since the hints
+     * were computed are left for the next refresh.
+     * @param hints the hints per side and column
      */
-    private void handleRightColumn1Selection() {
-        if (!listR3.getValueIsAdjusting()) {
-            java.util.List<String> selected = listR3.getSelectedValuesList();
-            if (!selected.isEmpty()) {
-                String[] items = ListCreator.prependRandomChars(selected, 5, 1);
-                populateList(listR2, items);
-                checkForMatch();
+    private void showHints(HintEngine.Hints[][] hints) {
+        for (ColumnPipeline.Side side : ColumnPipeline.Side.values()) {
+            for (int k = 0; k < depth - 1; k++) {
+                HintEngine.Hints columnHints = hints[side.ordinal()][k];
+                if (columnHints == null || columnHints.getCandidates() != session.getColumn(side, k)) {
+                    continue;
+                }
+                JList<String> list = listsOf(side).get(k);
+                ((HintCellRenderer) list.getCellRenderer()).setHints(columnHints);
+                ColumnFilter filter = filters.get(list);
+                long[] order = sortByHints ? columnHints.orderedKeys() : columnHints.getCandidates();
+                if (filter.getKeys() != order) {
+                    filter.reorder(order);
+                }
+                list.repaint();
             }
         }
     }
 
     /**
-     * Handles selection in right column 2.
+     * Cancels the background jobs that would populate columns of one side
+     * after a given column.
+     * @param side the side of the columns
+     * @param from the first column whose job is cancelled
      */
-    private void handleRightColumn2Selection() {
-        if (!listR2.getValueIsAdjusting()) {
-            java.util.List<String> selected = listR2.getSelectedValuesList();
-            if (!selected.isEmpty()) {
-                String[] items = ListCreator.prependRandomChars(selected, 5, 1);
-                populateList(listR1, items);
-                checkForMatch();
+    private void cancelPendingJobs(ColumnPipeline.Side side, int from) {
+        List<JList<String>> lists = listsOf(side);
+        for (int k = from; k < depth; k++) {
+            SwingWorker<KeyColumn, Void> job = pendingJobs.remove(lists.get(k));
+            if (job != null) {
+                job.cancel(true);
             }
         }
     }
 
     /**
-     * Handles selection in right column 3.
+     * Handles a selection in any column. A selection in column k regenerates
+     * column k+1 and empties the columns after it; the columns before it keep
+     * their contents. A selection in the innermost column only re-checks for a
+     * match.
+     * @param side the side of the column
+     * @param column the column index, 0 for the outermost column
      */
-    private void handleRightColumn3Selection() {
-        if (!listR1.getValueIsAdjusting()) {
+    private void handleSelection(ColumnPipeline.Side side, int column) {
+        JList<String> list = listsOf(side).get(column);
+        if (list.getValueIsAdjusting() || session == null || filters.get(list).isUpdating()) {
+            return;
+        }
+        int[] indices = list.getSelectedIndices();
+        if (indices.length == 0) {
+            return;
+        }
+        BulkListModel model = (BulkListModel) list.getModel();
+        long[] selectedKeys = new long[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            selectedKeys[i] = model.getKeyAt(indices[i]);
+        }
+
+        if (column == depth - 1) {
+            session.apply(side, column, selectedKeys, null);
             checkForMatch();
+            return;
         }
+        // Columns further in were generated from the old selection
+        cancelPendingJobs(side, column + 2);
+        expandInBackground(side, column, selectedKeys);
     }
 
     /**
-     * Checks if there are matching strings between left column 3 and right column 1.
+     * Checks if there are matching strings between the two innermost columns.
      * If a match is found, displays the chain in the message area.
      */
     private void checkForMatch() {
-        DefaultListModel<String> modelL3 = (DefaultListModel<String>) listL3.getModel();
-        DefaultListModel<String> modelR1 = (DefaultListModel<String>) listR1.getModel();
-
-        if (modelL3.isEmpty() || modelR1.isEmpty()) {
-            return;
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        String match = session.findMatch();
+        if (Metrics.ENABLED) {
+            Metrics.MATCH.recordSince(start);
         }
-
-        // Find matching strings
-        for (int i = 0; i < modelL3.getSize(); i++) {
-            String leftItem = modelL3.getElementAt(i);
-            for (int j = 0; j < modelR1.getSize(); j++) {
-                String rightItem = modelR1.getElementAt(j);
-                if (leftItem.equals(rightItem)) {
-                    displayChain(leftItem);
-                    return;
-                }
-            }
+        if (match != null) {
+            displayChain(match);
         }
     }
 
@@ -312,68 +673,21 @@ public class GUI extends JFrame {
      * @param matchString the string where left and right chains meet
      */
     private void displayChain(String matchString) {
-        if (messageArea == null) return;
-
-        // Build left chain
-        String leftChain = buildLeftChain(matchString);
-        // Build right chain
-        String rightChain = buildRightChain(matchString);
-
-        // Combine chains
-        String fullChain = leftChain + " == " + rightChain;
-        messageArea.setText(fullChain);
-    }
-
-    /**
-     * Builds the left side of the chain.
-     * @param matchString the matching string
-     * @return the left chain as a string
-     */
-    private String buildLeftChain(String matchString) {
-        java.util.List<String> selected1 = listL1.getSelectedValuesList();
-        java.util.List<String> selected2 = listL2.getSelectedValuesList();
-
-        String item1 = selected1.isEmpty() ? "" : selected1.get(0);
-        String item2 = selected2.isEmpty() ? "" : selected2.get(0);
-
-        StringBuilder chain = new StringBuilder();
-        chain.append(startLetter);
-        if (!item1.isEmpty()) {
-            chain.append(" - ").append(item1);
-        }
-        if (!item2.isEmpty()) {
-            chain.append(" - ").append(item2);
+        // The first chain shown for a challenge stops the clock and counts as the solve;
+        // later calls only show the chain, so nothing is recorded twice
+        if (gameClock.isRunning()) {
+            long solveNanos = gameClock.stop();
+            Metrics.SOLVE.record(solveNanos);
+            if (challengeLog != null) {
+                challengeLog.logSolved(session.getChallenge(), depth, solveNanos,
+                    session.selectionCounts(ColumnPipeline.Side.LEFT),
+                    session.selectionCounts(ColumnPipeline.Side.RIGHT), matchString);
+            }
         }
-        chain.append(" - ").append(matchString);
 
-        return chain.toString();
-    }
-
-    /**
-     * Builds the right side of the chain.
-     * The right side shows: match -> column 5 selection -> column 6 selection -> end letter
-     * This represents the path from the match back to the end letter.
-     * @param matchString the matching string
-     * @return the right chain as a string
-     */
-    private String buildRightChain(String matchString) {
-        java.util.List<String> selected3 = listR3.getSelectedValuesList(); // Column 6 selections
-        java.util.List<String> selected2 = listR2.getSelectedValuesList(); // Column 5 selections
-
-        String item3 = selected3.isEmpty() ? "" : selected3.get(0); // Column 6 item
-        String item2 = selected2.isEmpty() ? "" : selected2.get(0); // Column 5 item
-
-        StringBuilder chain = new StringBuilder();
-        chain.append(matchString); // PKTL
-        if (!item2.isEmpty()) {
-            chain.append(" - ").append(item2); // KTL
-        }
-        if (!item3.isEmpty()) {
-            chain.append(" - ").append(item3); // TL
-        }
-        chain.append(" - ").append(endLetter); // L
+        if (messageArea == null) return;
 
-        return chain.toString();
+        messageArea.setText(session.describeChain(matchString));
     }
 
     /**
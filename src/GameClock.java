@@ -0,0 +1,148 @@
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The game timer. One {@link javax.swing.Timer} drives the clock label and
+ * any other periodic display updates, so no thread is created per challenge.
+ * The timer fires once per displayed second, re-aligned on every tick to the
+ * next second boundary of the challenge, and the label is only changed when
+ * its text changes, so the clock never repaints more often than it can show.
+ * Elapsed time is measured with {@link System#nanoTime()}, which is
+ * monotonic and unaffected by wall-clock changes.
+ * <p>
+ * All methods must be called on the Event Dispatch Thread.
+ */
+public class GameClock {
+
+    // Longest wait between ticks; also the tick period before the first challenge
+    private static final int TICK_MS = 1000;
+
+    private final JLabel label;
+    private final Timer timer;
+    private final List<Runnable> tickListeners = new ArrayList<>();
+
+    private long startNanos;
+    private long stoppedNanos = -1;
+    private boolean started;
+    private String shown;
+
+    /**
+     * Creates a clock that shows the elapsed time in a label.
+     * @param label the label to show the time in
+     */
+    public GameClock(JLabel label) {
+        this.label = label;
+        timer = new Timer(TICK_MS, e -> tick());
+        timer.setCoalesce(true);
+        show(0);
+    }
+
+    /**
+     * Adds an action to run on every tick, such as refreshing a status
+     * display. Ticks continue while the clock is stopped as long as there are
+     * listeners.
+     * @param listener the action to run
+     */
+    public void addTickListener(Runnable listener) {
+        tickListeners.add(listener);
+        if (!timer.isRunning()) {
+            timer.start();
+        }
+    }
+
+    /**
+     * Starts counting from zero.
+     */
+    public void restart() {
+        startNanos = System.nanoTime();
+        stoppedNanos = -1;
+        started = true;
+        show(0);
+        timer.setInitialDelay(TICK_MS);
+        timer.setDelay(TICK_MS);
+        timer.restart();
+    }
+
+    /**
+     * Stops the clock, leaving the final time on display. Stopping a clock
+     * that is already stopped keeps the time it first stopped at.
+     * @return the time from the last restart to the stop, in nanoseconds
+     */
+    public long stop() {
+        if (isRunning()) {
+            stoppedNanos = System.nanoTime() - startNanos;
+            show(stoppedNanos);
+            if (tickListeners.isEmpty()) {
+                timer.stop();
+            }
+        }
+        return getElapsedNanos();
+    }
+
+    /**
+     * @return true if the clock is counting
+     */
+    public boolean isRunning() {
+        return started && stoppedNanos < 0;
+    }
+
+    /**
+     * @return the time since the last restart, or up to the stop if the clock
+     *         is stopped, in nanoseconds; 0 before the first restart
+     */
+    public long getElapsedNanos() {
+        if (!started) {
+            return 0;
+        }
+        return stoppedNanos >= 0 ? stoppedNanos : System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Stops the timer for good.
+     */
+    public void dispose() {
+        tickListeners.clear();
+        timer.stop();
+    }
+
+    /**
+     * Formats a duration the way the clock shows it.
+     * @param nanos the duration in nanoseconds
+     * @return the duration as hh:mm:ss
+     */
+    public static String format(long nanos) {
+        long seconds = nanos / 1_000_000_000L;
+        return String.format("%02d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+    }
+
+    /**
+     * Updates the label and runs the tick listeners, then schedules the next
+     * tick for the moment the displayed second changes.
+     */
+    private void tick() {
+        if (isRunning()) {
+            long elapsed = System.nanoTime() - startNanos;
+            show(elapsed);
+            long intoSecond = (elapsed / 1_000_000L) % TICK_MS;
+            timer.setDelay((int) (TICK_MS - intoSecond));
+        } else {
+            timer.setDelay(TICK_MS);
+        }
+        for (Runnable listener : tickListeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Shows a duration in the label if it differs from what is shown.
+     * @param nanos the duration in nanoseconds
+     */
+    private void show(long nanos) {
+        String text = format(nanos);
+        if (!text.equals(shown)) {
+            shown = text;
+            label.setText(text);
+        }
+    }
+}
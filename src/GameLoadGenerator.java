@@ -0,0 +1,318 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.random.RandomGenerator;
+
+/**
+ * Loopback load generator for {@link GameServer}. Each simulated client
+ * holds one connection on its own virtual thread and plays continuously:
+ * it sends a batch of pipelined requests (selections on random columns,
+ * ending with a match check), reads the answers, and starts a new challenge
+ * every few batches or as soon as its sides meet. The time from sending a
+ * batch to receiving each answer is recorded per request type, so the run
+ * reports both throughput and tail latency under pipelining.
+ */
+public class GameLoadGenerator {
+
+    /** Number of client connections when none is given. */
+    public static final int DEFAULT_CONNECTIONS = 64;
+    /** Number of requests each client keeps in flight when none is given. */
+    public static final int DEFAULT_PIPELINE = 16;
+    /** Length of a run in seconds when none is given. */
+    public static final int DEFAULT_SECONDS = 10;
+
+    // Batches a client plays before moving on to a new challenge
+    private static final int BATCHES_PER_CHALLENGE = 8;
+
+    private final InetSocketAddress address;
+    private final int pipeline;
+
+    private final LatencyHistogram challengeLatency = new LatencyHistogram("challenge");
+    private final LatencyHistogram selectLatency = new LatencyHistogram("select");
+    private final LatencyHistogram matchLatency = new LatencyHistogram("match");
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder solved = new LongAdder();
+
+    /**
+     * Creates a load generator for a server.
+     * @param address the server's address
+     * @param pipeline number of requests each client sends before reading the answers
+     * @throws IllegalArgumentException if pipeline is not positive
+     */
+    public GameLoadGenerator(InetSocketAddress address, int pipeline) {
+        if (pipeline <= 0) {
+            throw new IllegalArgumentException("Pipeline depth must be positive");
+        }
+        this.address = address;
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Runs the clients until the time is up.
+     * @param connections number of clients
+     * @param seconds length of the run
+     * @return the wall-clock time of the run in nanoseconds
+     */
+    public long run(int connections, int seconds) {
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1_000_000_000L;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < connections; c++) {
+                long clientSeed = c;
+                executor.execute(() -> {
+                    try {
+                        play(deadline, RandomSource.forSeed(clientSeed));
+                    } catch (IOException e) {
+                        errors.increment();
+                        System.err.println("Client failed: " + e.getMessage());
+                    }
+                });
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * @return the total number of requests answered
+     */
+    public long getRequestCount() {
+        return challengeLatency.getCount() + selectLatency.getCount() + matchLatency.getCount();
+    }
+
+    /**
+     * One client's game loop.
+     * @param deadline when to stop, in System.nanoTime() terms
+     * @param rng the client's generator
+     * @throws IOException if the connection fails or the server breaks the protocol
+     */
+    private void play(long deadline, RandomGenerator rng) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            ByteBuffer out = ByteBuffer.allocateDirect(
+                pipeline * (GameServer.HEADER_BYTES + 6 + 8 * RandomPlayer.MAX_PICKS) + GameServer.HEADER_BYTES + 9);
+            ByteBuffer in = ByteBuffer.allocateDirect(GameServer.MAX_FRAME_BYTES);
+            in.flip();
+
+            long[][] left = null;
+            long[][] right = null;
+            boolean newChallenge = true;
+            int batches = 0;
+            int nextId = 0;
+            byte[] ops = new byte[pipeline];
+            byte[] sides = new byte[pipeline];
+
+            while (System.nanoTime() < deadline) {
+                out.clear();
+                int count;
+                if (newChallenge) {
+                    ops[0] = GameServer.OP_NEW_CHALLENGE;
+                    frame(out, GameServer.OP_NEW_CHALLENGE, nextId++, 9).put((byte) 0).putLong(0);
+                    count = 1;
+                } else {
+                    // A select replaces the columns after its own, so the columns the client knows stay
+                    // valid for the rest of the batch only up to the lowest column selected so far on
+                    // each side; column 0 never changes, so there is always one to select in
+                    int[] open = {filledColumns(left), filledColumns(right)};
+                    for (int i = 0; i < pipeline - 1; i++) {
+                        sides[i] = (byte) rng.nextInt(2);
+                        long[][] columns = sides[i] == 0 ? left : right;
+                        int column = rng.nextInt(open[sides[i]]);
+                        open[sides[i]] = column + 1;
+                        long[] picks = RandomPlayer.pick(columns[column], rng);
+                        ops[i] = GameServer.OP_SELECT;
+                        frame(out, GameServer.OP_SELECT, nextId++, 6 + 8 * picks.length)
+                            .put(sides[i]).put((byte) column).putInt(picks.length);
+                        for (long key : picks) {
+                            out.putLong(key);
+                        }
+                    }
+                    ops[pipeline - 1] = GameServer.OP_MATCH;
+                    frame(out, GameServer.OP_MATCH, nextId++, 0);
+                    count = pipeline;
+                }
+
+                long sent = System.nanoTime();
+                out.flip();
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+
+                boolean found = false;
+                for (int i = 0; i < count; i++) {
+                    int length = readFrame(channel, in);
+                    long latency = System.nanoTime() - sent;
+                    byte status = in.get();
+                    in.getInt(); // Request id; answers come back in request order
+                    int payloadEnd = in.position() + length - 5;
+                    if (status != GameServer.STATUS_OK) {
+                        errors.increment();
+                    } else if (ops[i] == GameServer.OP_NEW_CHALLENGE) {
+                        challengeLatency.record(latency);
+                        in.getLong();
+                        in.get();
+                        in.get();
+                        int depth = in.get();
+                        left = new long[depth][];
+                        right = new long[depth][];
+                        Arrays.fill(left, new long[0]);
+                        Arrays.fill(right, new long[0]);
+                        left[0] = getKeys(in);
+                        right[0] = getKeys(in);
+                    } else if (ops[i] == GameServer.OP_SELECT) {
+                        selectLatency.record(latency);
+                        int changed = in.getInt();
+                        long[] keys = getKeys(in);
+                        if (changed >= 0) {
+                            long[][] columns = sides[i] == 0 ? left : right;
+                            columns[changed] = keys;
+                            for (int k = changed + 1; k < columns.length; k++) {
+                                columns[k] = new long[0];
+                            }
+                        }
+                    } else {
+                        matchLatency.record(latency);
+                        found = in.get() != 0;
+                    }
+                    in.position(payloadEnd);
+                }
+
+                if (found) {
+                    solved.increment();
+                }
+                newChallenge = left == null || found || ++batches % BATCHES_PER_CHALLENGE == 0;
+            }
+        }
+    }
+
+    /**
+     * Writes a request header.
+     * @param out the buffer to write to
+     * @param op the request code
+     * @param id the request id
+     * @param payloadBytes the payload size
+     * @return the buffer, for writing the payload
+     */
+    private static ByteBuffer frame(ByteBuffer out, byte op, int id, int payloadBytes) {
+        return out.putInt(GameServer.HEADER_BYTES - 4 + payloadBytes).put(op).putInt(id);
+    }
+
+    /**
+     * Reads until a whole frame is buffered, and positions the buffer after
+     * its length field.
+     * @param channel the connection
+     * @param in the read buffer, in read mode
+     * @return the frame length
+     * @throws IOException if the connection fails or closes mid-frame
+     */
+    private static int readFrame(SocketChannel channel, ByteBuffer in) throws IOException {
+        fill(channel, in, 4);
+        int length = in.getInt(in.position());
+        if (length < 5 || length > GameServer.MAX_FRAME_BYTES - 4) {
+            throw new IOException("Bad frame length " + length);
+        }
+        fill(channel, in, 4 + length);
+        in.position(in.position() + 4);
+        return length;
+    }
+
+    /**
+     * Reads until the buffer holds at least a given number of bytes.
+     * @param channel the connection
+     * @param in the read buffer, in read mode
+     * @param bytes the number of bytes needed
+     * @throws IOException if the connection fails or closes first
+     */
+    private static void fill(SocketChannel channel, ByteBuffer in, int bytes) throws IOException {
+        if (in.remaining() >= bytes) {
+            return;
+        }
+        in.compact();
+        while (in.position() < bytes) {
+            if (channel.read(in) < 0) {
+                throw new EOFException("Server closed the connection");
+            }
+        }
+        in.flip();
+    }
+
+    /**
+     * Reads a count and packed keys.
+     * @param in the buffer to read from
+     * @return the keys
+     */
+    private static long[] getKeys(ByteBuffer in) {
+        long[] keys = new long[in.getInt()];
+        in.asLongBuffer().get(keys);
+        in.position(in.position() + 8 * keys.length);
+        return keys;
+    }
+
+    /**
+     * @param columns the columns of one side, as last reported by the server
+     * @return the number of non-empty columns, at least 1
+     */
+    private static int filledColumns(long[][] columns) {
+        return RandomPlayer.filledColumns(k -> columns[k], columns.length);
+    }
+
+    /**
+     * Command line mode: runs clients against a server and prints the
+     * throughput and latency per request type. With port 0 (the default) a
+     * server is started in this JVM on a free loopback port. Every request
+     * the clients send is valid, so a rejected request or a failed client
+     * means the measurements do not describe real traffic: the run is then
+     * reported as failed, without them, and the JVM exits with status 1.
+     * Arguments (all optional): port, connections, pipeline depth, seconds.
+     * @param args command line arguments
+     */
+    public static void runCli(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CONNECTIONS;
+        int pipeline = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PIPELINE;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_SECONDS;
+
+        GameServer server = null;
+        boolean failed = false;
+        try {
+            if (port == 0) {
+                server = new GameServer(0, Runtime.getRuntime().availableProcessors(), GUI.DEFAULT_DEPTH);
+                port = server.getPort();
+            }
+            GameLoadGenerator generator = new GameLoadGenerator(new InetSocketAddress("127.0.0.1", port),
+                pipeline);
+            double elapsed = generator.run(connections, seconds) / 1e9;
+
+            System.out.printf("Connections: %d (pipeline=%d, %d s, port %d%s)%n", connections, pipeline,
+                seconds, port, server != null ? ", in-process server" : "");
+            long errors = generator.errors.sum();
+            if (errors > 0) {
+                System.err.printf("Run failed: %d requests or clients failed out of %d requests%n", errors,
+                    generator.getRequestCount() + errors);
+                failed = true;
+                return;
+            }
+            System.out.printf("Throughput: %.0f requests/s (%d requests, %d solved)%n",
+                generator.getRequestCount() / elapsed, generator.getRequestCount(), generator.solved.sum());
+            System.out.println("Latency: " + generator.challengeLatency);
+            System.out.println("Latency: " + generator.selectLatency);
+            System.out.println("Latency: " + generator.matchLatency);
+        } catch (IOException e) {
+            System.err.println("Could not start load generator: " + e.getMessage());
+            failed = true;
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+}
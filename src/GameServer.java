@@ -0,0 +1,609 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.BufferUnderflowException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless game server: plays games for remote clients over a compact
+ * binary protocol, one {@link GameSession} per connection.
+ * <p>
+ * One acceptor thread hands each new connection to one of several event
+ * loops, each a single thread running a {@link Selector} over its
+ * connections, so a few threads serve any number of clients and a session
+ * is only ever touched by its loop's thread. Requests are pipelined: a
+ * client may send any number of requests without waiting, and the loop
+ * answers every complete request in a read before flushing the answers
+ * together. Responses are encoded straight into direct buffers taken from a
+ * per-loop pool and handed to the socket with one gathering write, so they
+ * are never copied on the heap; a connection whose client is not reading
+ * stops being read until its answers drain. Each connection caches the
+ * children its client has generated in an {@link ExpansionCache} sized to
+ * the game's depth and capped at 16K keys, so thin clients stay cheap.
+ * <p>
+ * Every frame is a big-endian int giving the number of bytes that follow,
+ * then a one-byte code and an int request id that the response echoes. See
+ * the OP_ and STATUS_ constants for the payloads.
+ */
+public class GameServer implements AutoCloseable {
+
+    /** Port the server listens on when none is given. */
+    public static final int DEFAULT_PORT = 7242;
+
+    /**
+     * Starts a new challenge. Request: byte hasSeed, long seed (ignored unless
+     * hasSeed is 1). Response: long seed, byte start letter, byte end letter,
+     * byte depth, then the first left and first right columns, each as an int
+     * count followed by that many packed keys.
+     */
+    public static final byte OP_NEW_CHALLENGE = 1;
+    /**
+     * Selects items in a column. Request: byte side (0 left, 1 right), byte
+     * column, int count, then that many packed keys. Response: int index of
+     * the first column that changed (-1 if none), then that column as an int
+     * count followed by its packed keys.
+     */
+    public static final byte OP_SELECT = 2;
+    /**
+     * Checks the innermost columns for a match. Request: empty. Response:
+     * byte found, then if found the chain as a short length and UTF-8 bytes.
+     */
+    public static final byte OP_MATCH = 3;
+
+    /** Response status of a request that was carried out. */
+    public static final byte STATUS_OK = 0;
+    /** Response status of a rejected request; the payload is a short length and a UTF-8 message. */
+    public static final byte STATUS_ERROR = 1;
+
+    /** Bytes of the frame header: length, code and request id. */
+    public static final int HEADER_BYTES = 4 + 1 + 4;
+    /** Largest frame either side may send, header included. */
+    public static final int MAX_FRAME_BYTES = 1 << 20;
+
+    // Size of pooled buffers, and how many each loop keeps idle
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 256;
+
+    // Unsent bytes beyond which a connection is not read until its client catches up
+    private static final int MAX_PENDING_BYTES = 4 * BUFFER_BYTES;
+
+    // Most child keys a connection's expansion cache may hold (128 KiB), whatever the depth
+    private static final int MAX_CONNECTION_CACHE_KEYS = 1 << 14;
+
+    private final int depth;
+    private final int connectionCacheKeys;
+    private final ServerSocketChannel serverChannel;
+    private final Selector acceptSelector;
+    private final EventLoop[] loops;
+    private final ChallengePool challengePool;
+    private volatile boolean closed;
+
+    private final LongAdder connections = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+
+    /**
+     * Opens the server socket and starts the acceptor and event loop threads.
+     * @param port the port to listen on, or 0 for any free port
+     * @param loopCount number of event loop threads
+     * @param depth number of columns per side in every game
+     * @throws IOException if the socket cannot be opened
+     * @throws IllegalArgumentException if loopCount is not positive or the depth cannot be played
+     */
+    public GameServer(int port, int loopCount, int depth) throws IOException {
+        if (loopCount <= 0) {
+            throw new IllegalArgumentException("Loop count must be positive");
+        }
+        ColumnPipeline.checkSettings(depth, ChainSolver.DEFAULT_COUNT_PER_BASE,
+            ChainSolver.DEFAULT_ADDITIONAL_CHARS);
+        this.depth = depth;
+        this.connectionCacheKeys = connectionCacheKeys(depth);
+        challengePool = new ChallengePool(ChallengePool.DEFAULT_CAPACITY, Challenge.FIRST_COLUMN_COUNT,
+            ChainSolver.DEFAULT_COUNT_PER_BASE, ChainSolver.DEFAULT_ADDITIONAL_CHARS,
+            Math.min(ChallengePool.MIN_SOLUTION_DEPTH, depth), depth);
+
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        acceptSelector = Selector.open();
+        serverChannel.register(acceptSelector, SelectionKey.OP_ACCEPT);
+
+        loops = new EventLoop[loopCount];
+        for (int i = 0; i < loopCount; i++) {
+            loops[i] = new EventLoop();
+            Thread thread = new Thread(loops[i], "game-server-loop-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        Thread acceptor = new Thread(this::accept, "game-server-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Sizes a connection's expansion cache. A game can only generate the
+     * children of its own columns, every one of which fits a cache as large
+     * as both sides' columns after the first; a cache that large never evicts
+     * anything a client could select again. Deep games are capped at
+     * MAX_CONNECTION_CACHE_KEYS, so thousands of clients hold a few megabytes
+     * of cached keys between them rather than gigabytes.
+     * @param depth number of columns per side
+     * @return the most child keys one connection's cache may hold
+     */
+    static int connectionCacheKeys(int depth) {
+        long keys = 0;
+        long column = Challenge.FIRST_COLUMN_COUNT;
+        for (int k = 1; k < depth && keys < MAX_CONNECTION_CACHE_KEYS; k++) {
+            column *= ChainSolver.DEFAULT_COUNT_PER_BASE;
+            keys += 2 * column;
+        }
+        return (int) Math.min(keys, MAX_CONNECTION_CACHE_KEYS);
+    }
+
+    /**
+     * @return the port the server is listening on
+     * @throws IOException if the socket is closed
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * @return the number of connections accepted so far
+     */
+    public long getConnectionCount() {
+        return connections.sum();
+    }
+
+    /**
+     * @return the number of requests answered so far
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * Stops accepting connections and closes every open one.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        challengePool.close();
+        try {
+            acceptSelector.close();
+            serverChannel.close();
+        } catch (IOException e) {
+            System.err.println("Could not close server socket: " + e.getMessage());
+        }
+        for (EventLoop loop : loops) {
+            loop.close();
+        }
+    }
+
+    /**
+     * Acceptor loop: hands every new connection to the next event loop in turn.
+     */
+    private void accept() {
+        int next = 0;
+        try {
+            while (!closed) {
+                acceptSelector.select();
+                acceptSelector.selectedKeys().clear();
+                SocketChannel channel;
+                while ((channel = serverChannel.accept()) != null) {
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    connections.increment();
+                    loops[next].add(channel);
+                    next = (next + 1) % loops.length;
+                }
+            }
+        } catch (ClosedSelectorException e) {
+            // Closed by close()
+        } catch (IOException e) {
+            if (!closed) {
+                System.err.println("Game server stopped accepting: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * One selector thread and the connections it serves.
+     */
+    private final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> added = new ConcurrentLinkedQueue<>();
+        private final ArrayDeque<ByteBuffer> pool = new ArrayDeque<>();
+
+        /**
+         * Opens the loop's selector.
+         * @throws IOException if the selector cannot be opened
+         */
+        EventLoop() throws IOException {
+            selector = Selector.open();
+        }
+
+        /**
+         * Passes a connection to the loop; called from the acceptor thread.
+         * @param channel the new connection
+         */
+        void add(SocketChannel channel) {
+            added.add(channel);
+            selector.wakeup();
+        }
+
+        /**
+         * Closes the selector and every connection registered with it.
+         */
+        void close() {
+            selector.wakeup();
+            try {
+                for (SelectionKey key : selector.keys()) {
+                    key.channel().close();
+                }
+                selector.close();
+            } catch (IOException | ClosedSelectorException e) {
+                // Already closing
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    selector.select();
+                    registerAdded();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isWritable()) {
+                                connection.flush();
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                connection.read();
+                            }
+                        } catch (IOException e) {
+                            connection.close();
+                        }
+                    }
+                }
+            } catch (ClosedSelectorException e) {
+                // Closed by close()
+            } catch (IOException e) {
+                System.err.println("Game server loop stopped: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Registers the connections the acceptor has handed over.
+         * @throws IOException if a connection cannot be registered
+         */
+        private void registerAdded() throws IOException {
+            SocketChannel channel;
+            while ((channel = added.poll()) != null) {
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new Connection(this, channel, key));
+            }
+        }
+
+        /**
+         * @return an empty buffer from the pool, or a new one if the pool is empty
+         */
+        ByteBuffer acquire() {
+            ByteBuffer buffer = pool.poll();
+            return buffer != null ? buffer.clear() : ByteBuffer.allocateDirect(BUFFER_BYTES);
+        }
+
+        /**
+         * Returns a buffer to the pool; buffers of another size are dropped.
+         * @param buffer the buffer
+         */
+        void release(ByteBuffer buffer) {
+            if (buffer.capacity() == BUFFER_BYTES && pool.size() < MAX_POOLED_BUFFERS) {
+                pool.push(buffer);
+            }
+        }
+    }
+
+    /**
+     * One client connection and its game.
+     */
+    private final class Connection {
+        private final EventLoop loop;
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final ExpansionCache expansionCache = new ExpansionCache(connectionCacheKeys);
+        private GameSession session;
+
+        private ByteBuffer in;
+        private final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+        private ByteBuffer current;
+        private long pendingBytes;
+
+        /**
+         * Creates the state of a new connection.
+         * @param loop the loop serving the connection
+         * @param channel the socket
+         * @param key the socket's registration with the loop's selector
+         */
+        Connection(EventLoop loop, SocketChannel channel, SelectionKey key) {
+            this.loop = loop;
+            this.channel = channel;
+            this.key = key;
+            in = loop.acquire();
+        }
+
+        /**
+         * Reads what the client has sent, answers every complete request, and
+         * sends the answers.
+         * @throws IOException if the socket fails or the client breaks the protocol
+         */
+        void read() throws IOException {
+            int count = channel.read(in);
+            if (count < 0) {
+                close();
+                return;
+            }
+            in.flip();
+            while (in.remaining() >= 4) {
+                int length = in.getInt(in.position());
+                if (length < HEADER_BYTES - 4 || length > MAX_FRAME_BYTES - 4) {
+                    throw new IOException("Bad frame length " + length);
+                }
+                if (in.remaining() < 4 + length) {
+                    break;
+                }
+                int end = in.position() + 4 + length;
+                in.position(in.position() + 4);
+                byte op = in.get();
+                int id = in.getInt();
+                ByteBuffer payload = in.slice(in.position(), end - in.position());
+                in.position(end);
+                handle(op, id, payload);
+                requests.increment();
+            }
+            in.compact();
+            if (in.position() == in.capacity() && in.capacity() < MAX_FRAME_BYTES) {
+                // A frame larger than the buffer is arriving; grow to fit it
+                ByteBuffer larger = ByteBuffer.allocateDirect(MAX_FRAME_BYTES);
+                larger.put(in.flip());
+                loop.release(in);
+                in = larger;
+            } else if (in.capacity() > BUFFER_BYTES && in.position() <= BUFFER_BYTES) {
+                // The large frame has been handled; keep what follows it in a pooled buffer again
+                ByteBuffer pooled = loop.acquire();
+                pooled.put(in.flip());
+                in = pooled;
+            }
+            flush();
+        }
+
+        /**
+         * Carries out one request and queues its response.
+         * @param op the request code
+         * @param id the request id to echo
+         * @param payload the request payload
+         * @throws IOException if the code is unknown or the payload is malformed
+         */
+        private void handle(byte op, int id, ByteBuffer payload) throws IOException {
+            try {
+                switch (op) {
+                    case OP_NEW_CHALLENGE:
+                        newChallenge(id, payload);
+                        break;
+                    case OP_SELECT:
+                        select(id, payload);
+                        break;
+                    case OP_MATCH:
+                        match(id);
+                        break;
+                    default:
+                        throw new IOException("Unknown request " + op);
+                }
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                byte[] message = utf8(e.getMessage());
+                ByteBuffer response = begin(STATUS_ERROR, id, 2 + message.length);
+                response.putShort((short) message.length).put(message);
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Truncated request " + op);
+            }
+        }
+
+        /**
+         * Starts a challenge for this connection, from the pool if one is ready.
+         * @param id the request id
+         * @param payload hasSeed and seed
+         */
+        private void newChallenge(int id, ByteBuffer payload) {
+            boolean hasSeed = payload.get() != 0;
+            long seed = payload.getLong();
+            ChallengePool.Entry entry = hasSeed ? null : challengePool.poll();
+            expansionCache.clear();
+            if (entry != null) {
+                session = new GameSession(entry, depth, ChainSolver.DEFAULT_COUNT_PER_BASE,
+                    ChainSolver.DEFAULT_ADDITIONAL_CHARS, expansionCache);
+            } else {
+                session = new GameSession(hasSeed ? new Challenge(seed) : Challenge.random(), depth,
+                    Challenge.FIRST_COLUMN_COUNT, ChainSolver.DEFAULT_COUNT_PER_BASE,
+                    ChainSolver.DEFAULT_ADDITIONAL_CHARS, expansionCache);
+            }
+
+            long[] left = session.getColumn(ColumnPipeline.Side.LEFT, 0);
+            long[] right = session.getColumn(ColumnPipeline.Side.RIGHT, 0);
+            ByteBuffer response = begin(STATUS_OK, id, 8 + 3 + 4 + 8 * left.length + 4 + 8 * right.length);
+            response.putLong(session.getChallenge().getSeed())
+                .put((byte) session.getStartLetter())
+                .put((byte) session.getEndLetter())
+                .put((byte) depth);
+            putKeys(response, left);
+            putKeys(response, right);
+        }
+
+        /**
+         * Selects items and answers with the column that changed.
+         * @param id the request id
+         * @param payload side, column, count and keys
+         */
+        private void select(int id, ByteBuffer payload) {
+            ColumnPipeline.Side side = payload.get() == 0 ? ColumnPipeline.Side.LEFT : ColumnPipeline.Side.RIGHT;
+            int column = payload.get();
+            int count = payload.getInt();
+            if (count < 0 || count > payload.remaining() / 8) {
+                throw new IllegalArgumentException("Bad key count " + count);
+            }
+            long[] keys = new long[count];
+            payload.asLongBuffer().get(keys);
+            // Keys from another column or side would reach the trie as strings it cannot hold
+            requireSession().checkSelection(side, column, keys);
+            int changed = session.select(side, column, keys);
+            long[] contents = changed >= 0 ? session.getColumn(side, changed) : new long[0];
+            ByteBuffer response = begin(STATUS_OK, id, 4 + 4 + 8 * contents.length);
+            response.putInt(changed);
+            putKeys(response, contents);
+        }
+
+        /**
+         * Checks for a match and answers with the chain if there is one.
+         * @param id the request id
+         */
+        private void match(int id) {
+            String match = requireSession().findMatch();
+            byte[] chain = match == null ? new byte[0] : utf8(session.describeChain(match));
+            ByteBuffer response = begin(STATUS_OK, id, 1 + (match == null ? 0 : 2 + chain.length));
+            response.put((byte) (match == null ? 0 : 1));
+            if (match != null) {
+                response.putShort((short) chain.length).put(chain);
+            }
+        }
+
+        /**
+         * @return the connection's game
+         * @throws IllegalStateException if no challenge has been started
+         */
+        private GameSession requireSession() {
+            if (session == null) {
+                throw new IllegalStateException("No challenge started");
+            }
+            return session;
+        }
+
+        /**
+         * Reserves room for a response in the output buffers and writes its header.
+         * @param status the response status
+         * @param id the request id
+         * @param payloadBytes the exact payload size
+         * @return the buffer to write the payload into
+         */
+        private ByteBuffer begin(byte status, int id, int payloadBytes) {
+            int frameBytes = HEADER_BYTES + payloadBytes;
+            if (current == null || current.remaining() < frameBytes) {
+                if (current != null) {
+                    out.add(current.flip());
+                }
+                // Responses too big for a pooled buffer get one of their own
+                current = frameBytes <= BUFFER_BYTES ? loop.acquire() : ByteBuffer.allocateDirect(frameBytes);
+            }
+            pendingBytes += frameBytes;
+            return current.putInt(frameBytes - 4).put(status).putInt(id);
+        }
+
+        /**
+         * Sends queued responses with one gathering write, and watches for
+         * the socket to become writable if they did not all fit.
+         * @throws IOException if the socket fails
+         */
+        void flush() throws IOException {
+            if (current != null && current.position() > 0) {
+                out.add(current.flip());
+                current = null;
+            }
+            if (!out.isEmpty()) {
+                pendingBytes -= channel.write(out.toArray(new ByteBuffer[0]));
+                while (!out.isEmpty() && !out.peek().hasRemaining()) {
+                    loop.release(out.poll());
+                }
+            }
+            int interest = out.isEmpty() ? 0 : SelectionKey.OP_WRITE;
+            if (pendingBytes < MAX_PENDING_BYTES) {
+                interest |= SelectionKey.OP_READ;
+            }
+            key.interestOps(interest);
+        }
+
+        /**
+         * Closes the socket and returns the connection's buffers to the pool.
+         */
+        void close() {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Nothing more to do for a connection that is going away
+            }
+            loop.release(in);
+            if (current != null) {
+                loop.release(current);
+                current = null;
+            }
+            while (!out.isEmpty()) {
+                loop.release(out.poll());
+            }
+        }
+    }
+
+    /**
+     * Writes a count and packed keys.
+     * @param buffer the buffer to write to
+     * @param keys the keys
+     */
+    private static void putKeys(ByteBuffer buffer, long[] keys) {
+        buffer.putInt(keys.length);
+        buffer.asLongBuffer().put(keys);
+        buffer.position(buffer.position() + 8 * keys.length);
+    }
+
+    /**
+     * Encodes a message, trimmed so its length fits a short.
+     * @param text the message
+     * @return the UTF-8 bytes
+     */
+    private static byte[] utf8(String text) {
+        byte[] bytes = String.valueOf(text).getBytes(StandardCharsets.UTF_8);
+        return bytes.length <= Short.MAX_VALUE ? bytes : Arrays.copyOf(bytes, Short.MAX_VALUE);
+    }
+
+    /**
+     * Command line mode: runs the server until the process is stopped.
+     * Arguments (all optional): port, event loop count, depth.
+     * @param args command line arguments
+     */
+    public static void runCli(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int loopCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : GUI.DEFAULT_DEPTH;
+        try {
+            GameServer server = new GameServer(port, loopCount, depth);
+            System.out.printf("Game server listening on port %d (%d loops, depth %d)%n",
+                server.getPort(), loopCount, depth);
+            Thread.currentThread().join();
+        } catch (IOException e) {
+            System.err.println("Could not start game server: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
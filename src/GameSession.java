@@ -0,0 +1,237 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The state of one player's game: the challenge being played, the columns
+ * and selections on both sides, and the match once the two innermost
+ * columns meet. The session knows nothing about how it is shown, so the same
+ * game can be driven by the window or headlessly by {@link LoadSimulator}.
+ * <p>
+ * A session is not thread-safe; it should be used by one thread at a time.
+ * Only {@link #expand} may be called from another thread while the owner
+ * keeps playing, since it has no side effects.
+ */
+public class GameSession {
+
+    private final Challenge challenge;
+    private final ColumnPipeline pipeline;
+
+    // The first string the two sides met at; null until the challenge is solved
+    private String solution;
+
+    /**
+     * Starts a session on a challenge and fills the first column on each side.
+     * @param challenge the challenge to play
+     * @param depth number of columns per side
+     * @param firstColumnCount number of items in the first column on each side
+     * @param countPerBase number of items generated per selected item
+     * @param additionalChars number of characters added per column
+     * @param expansionCache the cache to look up and store generated children in
+     * @throws IllegalArgumentException if any setting is not positive, or the
+     *                                  innermost strings would not fit in a packed key
+     */
+    public GameSession(Challenge challenge, int depth, int firstColumnCount, int countPerBase,
+                       int additionalChars, ExpansionCache expansionCache) {
+        this.challenge = challenge;
+        this.pipeline = new ColumnPipeline(challenge, depth, firstColumnCount, countPerBase, additionalChars,
+            expansionCache);
+    }
+
+    /**
+     * Starts a session on a pooled challenge, reusing its pre-generated first columns.
+     * @param entry the challenge taken from a {@link ChallengePool}
+     * @param depth number of columns per side
+     * @param countPerBase number of items generated per selected item
+     * @param additionalChars number of characters added per column
+     * @param expansionCache the cache to look up and store generated children in
+     * @throws IllegalArgumentException if any setting is not positive, or the
+     *                                  innermost strings would not fit in a packed key
+     */
+    public GameSession(ChallengePool.Entry entry, int depth, int countPerBase, int additionalChars,
+                       ExpansionCache expansionCache) {
+        this.challenge = entry.getChallenge();
+        this.pipeline = new ColumnPipeline(challenge, depth, entry.getFirstLeftColumn(),
+            entry.getFirstRightColumn(), countPerBase, additionalChars, expansionCache);
+    }
+
+    /**
+     * @return the challenge being played
+     */
+    public Challenge getChallenge() {
+        return challenge;
+    }
+
+    /**
+     * @return the letter the left side starts from
+     */
+    public char getStartLetter() {
+        return challenge.getStartLetter();
+    }
+
+    /**
+     * @return the letter the right side ends at
+     */
+    public char getEndLetter() {
+        return challenge.getEndLetter();
+    }
+
+    /**
+     * @return the number of columns per side
+     */
+    public int getDepth() {
+        return pipeline.getDepth();
+    }
+
+    /**
+     * Returns the packed keys of a column.
+     * @param side the side of the column
+     * @param column the column index, 0 for the outermost column
+     * @return the keys of the column (not copied; do not modify)
+     */
+    public long[] getColumn(ColumnPipeline.Side side, int column) {
+        return pipeline.getColumn(side, column);
+    }
+
+    /**
+     * Returns the packed keys of the items selected in a column.
+     * @param side the side of the column
+     * @param column the column index, 0 for the outermost column
+     * @return the selected keys (not copied; do not modify)
+     */
+    public long[] getSelection(ColumnPipeline.Side side, int column) {
+        return pipeline.getSelection(side, column);
+    }
+
+    /**
+     * Returns a side's frontier: its innermost column that has any items.
+     * @param side the side
+     * @return the keys of that column (not copied; do not modify)
+     */
+    public long[] getFrontier(ColumnPipeline.Side side) {
+        int column = getDepth() - 1;
+        while (column > 0 && getColumn(side, column).length == 0) {
+            column--;
+        }
+        return getColumn(side, column);
+    }
+
+    /**
+     * Checks that every key of a selection is an item of the column.
+     * See {@link ColumnPipeline#checkSelection}.
+     * @param side the side of the selection
+     * @param column the column the keys were selected in
+     * @param selectedKeys packed keys of the selected items
+     * @throws IllegalArgumentException if the column is outside the game or a key is not in it
+     */
+    public void checkSelection(ColumnPipeline.Side side, int column, long[] selectedKeys) {
+        pipeline.checkSelection(side, column, selectedKeys);
+    }
+
+    /**
+     * Generates the column that follows a selection without changing the
+     * session; safe to call from any thread. See {@link ColumnPipeline#expand}.
+     * @param side the side of the selection
+     * @param column the column the keys were selected in
+     * @param selectedKeys packed keys of the selected items
+     * @return the next column, or an empty column if column is the innermost
+     */
+    public KeyColumn expand(ColumnPipeline.Side side, int column, long[] selectedKeys) {
+        return pipeline.expand(side, column, selectedKeys);
+    }
+
+    /**
+     * Records a selection and installs the column generated from it.
+     * See {@link ColumnPipeline#apply}.
+     * @param side the side of the selection
+     * @param column the column the keys were selected in
+     * @param selectedKeys packed keys of the selected items (not copied)
+     * @param nextColumn the result of {@link #expand} for the same selection (not copied)
+     * @return the index of the first column whose contents changed, or -1 if none did
+     */
+    public int apply(ColumnPipeline.Side side, int column, long[] selectedKeys, KeyColumn nextColumn) {
+        return pipeline.apply(side, column, selectedKeys, nextColumn);
+    }
+
+    /**
+     * Expands a selection and applies the result on the calling thread.
+     * @param side the side of the selection
+     * @param column the column the keys were selected in
+     * @param selectedKeys packed keys of the selected items
+     * @return the index of the first column whose contents changed, or -1 if none did
+     */
+    public int select(ColumnPipeline.Side side, int column, long[] selectedKeys) {
+        return pipeline.select(side, column, selectedKeys);
+    }
+
+    /**
+     * Looks for a string the two innermost columns share. The first one found
+     * in the session is remembered as its solution.
+     * @return the current meeting string, or null if the columns do not meet
+     */
+    public String findMatch() {
+        String match = pipeline.findMatch();
+        if (match != null && solution == null) {
+            solution = match;
+        }
+        return match;
+    }
+
+    /**
+     * @return the first string the two sides met at, or null if they have not met yet
+     */
+    public String getSolution() {
+        return solution;
+    }
+
+    /**
+     * @return true once the two sides have met
+     */
+    public boolean isSolved() {
+        return solution != null;
+    }
+
+    /**
+     * Counts the selected items in each column of one side.
+     * @param side the side to count
+     * @return selection counts from the outermost to the innermost column
+     */
+    public int[] selectionCounts(ColumnPipeline.Side side) {
+        int[] counts = new int[getDepth()];
+        for (int k = 0; k < counts.length; k++) {
+            counts[k] = getSelection(side, k).length;
+        }
+        return counts;
+    }
+
+    /**
+     * Builds the complete chain through a meeting string.
+     * @param matchString the string where left and right chains meet
+     * @return the left chain and the right chain, joined at the match
+     */
+    public String describeChain(String matchString) {
+        return buildLeftChain(matchString) + " == " + buildRightChain(matchString);
+    }
+
+    /**
+     * Builds the left side of the chain by walking from the match back to the
+     * start letter through the strings it was generated from.
+     * @param matchString the matching string
+     * @return the left chain as a string
+     */
+    private String buildLeftChain(String matchString) {
+        return String.join(" - ", pipeline.pathTo(ColumnPipeline.Side.LEFT, PackedKey.encode(matchString)));
+    }
+
+    /**
+     * Builds the right side of the chain.
+     * The right side shows: match -> the strings it was generated from -> end letter
+     * This represents the path from the match back to the end letter.
+     * @param matchString the matching string
+     * @return the right chain as a string
+     */
+    private String buildRightChain(String matchString) {
+        List<String> path = pipeline.pathTo(ColumnPipeline.Side.RIGHT, PackedKey.encode(matchString));
+        Collections.reverse(path); // PKTL - KTL - TL - L
+        return String.join(" - ", path);
+    }
+}
@@ -0,0 +1,56 @@
+import javax.swing.*;
+import java.awt.Component;
+import java.awt.Font;
+
+/**
+ * Draws the items of a column with their hints from {@link HintEngine}: the
+ * items that reach the most meeting strings are shown in bold, items that
+ * cannot meet the other side's frontier any more are greyed out, and the
+ * tooltip of every item gives its count. Without hints, or when every item
+ * scores the same, items are drawn as usual.
+ */
+public class HintCellRenderer extends DefaultListCellRenderer {
+
+    private HintEngine.Hints hints;
+
+    /**
+     * Sets the hints to draw. The list is not repainted.
+     * @param hints the hints for the list's column, or null for none
+     */
+    public void setHints(HintEngine.Hints hints) {
+        this.hints = hints;
+    }
+
+    /**
+     * @return the hints being drawn, or null if there are none
+     */
+    public HintEngine.Hints getHints() {
+        return hints;
+    }
+
+    @Override
+    public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected,
+                                                  boolean cellHasFocus) {
+        super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+        setToolTipText(null);
+        if (hints == null || !(list.getModel() instanceof BulkListModel)) {
+            return this;
+        }
+        BulkListModel model = (BulkListModel) list.getModel();
+        if (!model.isPacked() || index < 0 || index >= model.getSize()) {
+            return this;
+        }
+
+        long score = hints.scoreOf(model.getKeyAt(index));
+        setToolTipText(score == Long.MAX_VALUE ? "Reaches a very large number of meeting strings"
+            : "Reaches " + score + " meeting string" + (score == 1 ? "" : "s"));
+        if (hints.isInformative()) {
+            if (score == 0 && !isSelected) {
+                setForeground(UIManager.getColor("Label.disabledForeground"));
+            } else if (score == hints.getMaxScore()) {
+                setFont(getFont().deriveFont(Font.BOLD));
+            }
+        }
+        return this;
+    }
+}
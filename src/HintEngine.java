@@ -0,0 +1,258 @@
+import java.util.Arrays;
+
+/**
+ * Scores candidate selections by how many meeting strings their subtree can
+ * still reach against the other side's current frontier (its innermost
+ * filled column).
+ * <p>
+ * A meeting string has the length of the innermost columns. On the left it
+ * extends a candidate x at the end, on the right it extends a frontier item r
+ * at the start, and since every item of a column has the same length, every
+ * r reaches a different set of meeting strings. The meeting strings reachable
+ * from both x and r are counted in closed form rather than by expanding
+ * either subtree:
+ * <ul>
+ *   <li>If x and r together are no longer than a meeting string, the letters
+ *       between them are free, so x meets r in 26^gap strings and every
+ *       candidate of the column gets the same score, frontier size times 26^gap.</li>
+ *   <li>If they are longer, they overlap by o letters and meet in exactly one
+ *       string when the last o letters of x are the first o letters of r, and
+ *       in none otherwise. The frontier is summarized once per overlap length
+ *       as a count of items per o-letter edge, and a candidate's score is a
+ *       single lookup.</li>
+ * </ul>
+ * Right candidates are scored the same way against the left frontier, with
+ * the roles of start and end swapped.
+ * <p>
+ * The edge counts are memoized by the identity of the frontier, and each
+ * column's hints by its side and index, kept while the column's array is the
+ * same. Columns are never modified in place, so after a selection only the
+ * columns that were replaced, or whose opposite frontier was replaced, are
+ * scored again, and a replaced column's hints take the place of its old ones.
+ * All methods are thread-safe, so hints can be computed off the Event
+ * Dispatch Thread.
+ */
+public class HintEngine {
+
+    /**
+     * The scores of one column's candidates against one frontier.
+     */
+    public static final class Hints {
+        private final long[] candidates;
+        private final boolean suffix;
+        private final int overlap;
+        private final LongIntHashMap edgeCounts;
+        private final long uniformScore;
+        private final long maxScore;
+        private long[] ordered;
+
+        /**
+         * Scores a column.
+         * @param candidates packed keys of the column
+         * @param suffix true if the candidates are on the right side
+         * @param overlap letters each candidate shares with each frontier item, or 0 or less if none
+         * @param edgeCounts frontier items per shared edge, used when overlap is positive
+         * @param uniformScore the score of every candidate, used when overlap is not positive
+         */
+        private Hints(long[] candidates, boolean suffix, int overlap, LongIntHashMap edgeCounts,
+                      long uniformScore) {
+            this.candidates = candidates;
+            this.suffix = suffix;
+            this.overlap = overlap;
+            this.edgeCounts = edgeCounts;
+            this.uniformScore = uniformScore;
+            long max = overlap > 0 ? 0 : uniformScore;
+            if (overlap > 0) {
+                for (long key : candidates) {
+                    max = Math.max(max, scoreOf(key));
+                }
+            }
+            this.maxScore = max;
+        }
+
+        /**
+         * @return the keys that were scored (not copied; do not modify)
+         */
+        public long[] getCandidates() {
+            return candidates;
+        }
+
+        /**
+         * Returns the number of meeting strings a candidate can reach. Works
+         * for any key of the column's length, not only the scored ones.
+         * @param key packed key of a candidate
+         * @return the number of reachable meeting strings
+         */
+        public long scoreOf(long key) {
+            if (overlap <= 0) {
+                return uniformScore;
+            }
+            return edgeCounts.get(edge(key, overlap, !suffix), 0);
+        }
+
+        /**
+         * @return the highest score in the column
+         */
+        public long getMaxScore() {
+            return maxScore;
+        }
+
+        /**
+         * @return true if the scores tell the candidates apart, false if every
+         *         candidate reaches the same number of meeting strings
+         */
+        public boolean isInformative() {
+            return overlap > 0;
+        }
+
+        /**
+         * Orders the candidates by score, highest first, keeping the column's
+         * order among equal scores. Computed on first use.
+         * @return the ordered keys (not copied; do not modify)
+         */
+        public synchronized long[] orderedKeys() {
+            if (ordered == null) {
+                ordered = isInformative() ? sortByScore() : candidates;
+            }
+            return ordered;
+        }
+
+        /**
+         * Sorts the candidates by packing each score with its position into
+         * one long, so a primitive sort does the work.
+         * @return the keys in score order
+         */
+        private long[] sortByScore() {
+            long[] packed = new long[candidates.length];
+            for (int i = 0; i < candidates.length; i++) {
+                // Scores are counts of frontier items here, so they fit in an int
+                packed[i] = ((long) (Integer.MAX_VALUE - (int) scoreOf(candidates[i])) << Integer.SIZE) | i;
+            }
+            Arrays.parallelSort(packed);
+            long[] keys = new long[candidates.length];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = candidates[(int) packed[i]];
+            }
+            return keys;
+        }
+    }
+
+    private final int meetingLength;
+
+    // Memo per side being scored: the opposite frontier, its edge counts by overlap, and hints by column index
+    private final long[][] frontiers = new long[2][];
+    private final LongIntHashMap[][] edgeCounts = new LongIntHashMap[2][PackedKey.MAX_LENGTH + 1];
+    private final Hints[][] hints;
+
+    /**
+     * Creates an engine for games with a given number of columns.
+     * @param depth number of columns per side
+     * @param additionalChars number of characters added per column
+     * @throws IllegalArgumentException if the settings are not valid for a game
+     */
+    public HintEngine(int depth, int additionalChars) {
+        if (depth <= 0 || additionalChars <= 0 || 1 + depth * additionalChars > PackedKey.MAX_LENGTH) {
+            throw new IllegalArgumentException("Invalid depth or additional characters");
+        }
+        this.meetingLength = 1 + depth * additionalChars;
+        this.hints = new Hints[2][depth];
+    }
+
+    /**
+     * Scores a column of one side against the other side's frontier.
+     * @param side the side of the candidates
+     * @param column the index of the candidates' column
+     * @param candidates packed keys of the column, all of the same length (not copied)
+     * @param frontier packed keys of the other side's innermost filled column,
+     *                 all of the same length (not copied)
+     * @return the scores, shared with later calls for the same column and arrays
+     * @throws IllegalArgumentException if the column is outside the game
+     */
+    public synchronized Hints hints(ColumnPipeline.Side side, int column, long[] candidates, long[] frontier) {
+        int s = side.ordinal();
+        if (column < 0 || column >= hints[s].length) {
+            throw new IllegalArgumentException("Column " + column + " is outside a game of depth " + hints[s].length);
+        }
+        if (frontiers[s] != frontier) {
+            frontiers[s] = frontier;
+            Arrays.fill(edgeCounts[s], null);
+            Arrays.fill(hints[s], null);
+        }
+        Hints cached = hints[s][column];
+        if (cached != null && cached.getCandidates() == candidates) {
+            return cached;
+        }
+
+        boolean suffix = side == ColumnPipeline.Side.RIGHT;
+        int candidateLength = candidates.length == 0 ? 0 : PackedKey.length(candidates[0]);
+        int frontierLength = frontier.length == 0 ? 0 : PackedKey.length(frontier[0]);
+        int overlap = candidates.length == 0 || frontier.length == 0 ? 0
+            : candidateLength + frontierLength - meetingLength;
+        Hints scored;
+        if (overlap > 0) {
+            if (edgeCounts[s][overlap] == null) {
+                edgeCounts[s][overlap] = countEdges(frontier, overlap, suffix);
+            }
+            scored = new Hints(candidates, suffix, overlap, edgeCounts[s][overlap], 0);
+        } else {
+            scored = new Hints(candidates, suffix, overlap, null, uniformScore(frontier.length, -overlap));
+        }
+        hints[s][column] = scored;
+        return scored;
+    }
+
+    /**
+     * Forgets every memoized result, such as when a new challenge starts.
+     */
+    public synchronized void clear() {
+        for (int s = 0; s < frontiers.length; s++) {
+            frontiers[s] = null;
+            Arrays.fill(edgeCounts[s], null);
+            Arrays.fill(hints[s], null);
+        }
+    }
+
+    /**
+     * Counts the frontier items per edge they share with a candidate.
+     * @param frontier packed keys of the frontier
+     * @param overlap length of the shared edge
+     * @param leftFrontier true if the frontier is on the left side (its edge is a suffix)
+     * @return the number of frontier items per edge
+     */
+    private static LongIntHashMap countEdges(long[] frontier, int overlap, boolean leftFrontier) {
+        LongIntHashMap counts = new LongIntHashMap();
+        for (long key : frontier) {
+            counts.addTo(edge(key, overlap, leftFrontier), 1);
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the part of a key that faces the middle of the game.
+     * @param key the packed key
+     * @param length the number of characters to keep
+     * @param end true to keep the last characters (left side), false to keep the first (right side)
+     * @return the key of the edge
+     */
+    private static long edge(long key, int length, boolean end) {
+        int drop = PackedKey.length(key) - length;
+        return end ? PackedKey.dropFirst(key, drop) : PackedKey.dropLast(key, drop);
+    }
+
+    /**
+     * Computes frontier size times 26^freeLetters, capped at Long.MAX_VALUE.
+     * @param frontierSize the number of frontier items
+     * @param freeLetters letters between a candidate and a frontier item
+     * @return the number of meeting strings each candidate can reach
+     */
+    private static long uniformScore(int frontierSize, int freeLetters) {
+        long score = frontierSize;
+        for (int i = 0; i < freeLetters; i++) {
+            if (score > Long.MAX_VALUE / PackedKey.ALPHABET_SIZE) {
+                return Long.MAX_VALUE;
+            }
+            score *= PackedKey.ALPHABET_SIZE;
+        }
+        return score;
+    }
+}
@@ -0,0 +1,105 @@
+import java.util.Arrays;
+
+/**
+ * The result of expanding a batch of bases: the distinct bases, and the keys
+ * generated from them in one contiguous array. Every base has exactly
+ * {@link #childrenPerBase()} children, stored together in base order, so the
+ * children of base b start at {@code b * childrenPerBase()} and the base of
+ * any key is found by division. The key array can be handed to a list model
+ * as it is.
+ */
+public final class KeyColumn {
+
+    private final long[] bases;
+    private final long[] keys;
+    private final int childrenPerBase;
+
+    // The keys hashed for lookups, built the first time one is needed
+    private LongHashSet keySet;
+
+    /**
+     * Wraps the arrays of an expansion.
+     * @param bases the distinct bases, in selection order (not copied)
+     * @param keys the generated keys, childrenPerBase per base (not copied)
+     * @param childrenPerBase number of keys generated for each base
+     */
+    KeyColumn(long[] bases, long[] keys, int childrenPerBase) {
+        this.bases = bases;
+        this.keys = keys;
+        this.childrenPerBase = childrenPerBase;
+    }
+
+    /**
+     * @return the generated keys, in base order (not copied; do not modify)
+     */
+    public long[] keys() {
+        return keys;
+    }
+
+    /**
+     * @return the number of generated keys
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Checks whether a key was generated in this column. The keys are hashed
+     * on the first call, so later calls take constant time.
+     * @param key a packed key
+     * @return true if the key is one of the column's keys
+     */
+    public synchronized boolean contains(long key) {
+        if (keySet == null) {
+            keySet = new LongHashSet(keys.length);
+            for (long k : keys) {
+                keySet.add(k);
+            }
+        }
+        return keySet.contains(key);
+    }
+
+    /**
+     * @return the number of distinct bases that were expanded
+     */
+    public int baseCount() {
+        return bases.length;
+    }
+
+    /**
+     * @param b base index, 0 to baseCount()-1
+     * @return the packed key of that base
+     */
+    public long baseAt(int b) {
+        return bases[b];
+    }
+
+    /**
+     * @return the number of keys generated for each base
+     */
+    public int childrenPerBase() {
+        return childrenPerBase;
+    }
+
+    /**
+     * Returns the index of the base a generated key came from.
+     * @param i index of a generated key, 0 to size()-1
+     * @return the base index
+     */
+    public int baseIndexOf(int i) {
+        if (i < 0 || i >= keys.length) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", size: " + keys.length);
+        }
+        return i / childrenPerBase;
+    }
+
+    /**
+     * Copies out the children of one base.
+     * @param b base index, 0 to baseCount()-1
+     * @return the keys generated for that base, in generation order
+     */
+    public long[] childrenOf(int b) {
+        int from = b * childrenPerBase;
+        return Arrays.copyOfRange(keys, from, from + childrenPerBase);
+    }
+}
@@ -0,0 +1,98 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * Draws runs of random letters without repeats.
+ * A run of n letters is identified by an index in [0, 26^n): letter i of the
+ * run is digit i of the index in base 26. Sampling distinct indices with
+ * Floyd's algorithm therefore gives distinct runs directly, in O(count) time
+ * and without the retry-on-duplicate loop, and it returns every possible run
+ * when more are requested than exist.
+ */
+public final class LetterSampler {
+
+    /** Number of letters in the alphabet. */
+    public static final int ALPHABET_SIZE = 26;
+
+    // 26^13 is the largest power of 26 that fits in a long
+    private static final int MAX_INDEXED_LETTERS = 13;
+    private static final long[] POWERS = new long[MAX_INDEXED_LETTERS + 1];
+
+    static {
+        POWERS[0] = 1;
+        for (int i = 1; i < POWERS.length; i++) {
+            POWERS[i] = POWERS[i - 1] * ALPHABET_SIZE;
+        }
+    }
+
+    // Private no-arg constructor to prevent attempts to instantiate this class.
+    private LetterSampler() {}
+
+    /**
+     * Returns the number of distinct runs of the given length that the sampler
+     * can tell apart. Runs longer than 13 letters are told apart by their
+     * first 13 letters; the rest are drawn freely.
+     * @param letters the length of a run
+     * @return 26^letters, capped at 26^13
+     */
+    public static long space(int letters) {
+        return POWERS[Math.min(letters, MAX_INDEXED_LETTERS)];
+    }
+
+    /**
+     * Samples distinct run indices for runs of the given length.
+     * @param rng the generator to draw from
+     * @param count the number of runs wanted
+     * @param letters the length of each run
+     * @return min(count, space(letters)) distinct indices in random order
+     * @throws IllegalArgumentException if count or letters is negative
+     */
+    public static long[] sample(RandomGenerator rng, int count, int letters) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count cannot be negative");
+        }
+        if (letters < 0) {
+            throw new IllegalArgumentException("Letters cannot be negative");
+        }
+        long space = space(letters);
+        int k = (int) Math.min(count, space);
+
+        // Floyd's algorithm: each step adds exactly one new index
+        LongHashSet chosen = new LongHashSet(k);
+        int collisions = 0;
+        for (long j = space - k; j < space; j++) {
+            long t = rng.nextLong(j + 1);
+            if (!chosen.add(t)) {
+                // A repeated draw is replaced by j instead of being drawn again
+                chosen.add(j);
+                collisions++;
+            }
+        }
+        if (Metrics.ENABLED && collisions > 0) {
+            Metrics.SAMPLER_COLLISIONS.add(collisions);
+        }
+
+        // Floyd's picks a uniform subset but not a uniform order, so shuffle it
+        long[] indices = chosen.toArray();
+        for (int i = indices.length - 1; i > 0; i--) {
+            int swap = rng.nextInt(i + 1);
+            long tmp = indices[i];
+            indices[i] = indices[swap];
+            indices[swap] = tmp;
+        }
+        return indices;
+    }
+
+    /**
+     * Returns one letter of a sampled run.
+     * @param index the run index from {@link #sample}
+     * @param position the position of the letter in the run
+     * @param rng the generator used for positions past the 13th
+     * @return the letter index, 0 to 25
+     */
+    public static int letterAt(long index, int position, RandomGenerator rng) {
+        if (position >= MAX_INDEXED_LETTERS) {
+            return rng.nextInt(ALPHABET_SIZE);
+        }
+        return (int) ((index / POWERS[position]) % ALPHABET_SIZE);
+    }
+}
@@ -0,0 +1,757 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A real link graph, such as a Wikipedia link dump, for playing the game on
+ * actual page links instead of random letters. On the left side a column
+ * holds the pages the previous column links to; on the right side it holds
+ * the pages that link to the previous column.
+ * <p>
+ * The graph is read from two text files: a title list with one page title
+ * per line, where line i (from 0) names page i, and an edge list with one
+ * "from to" pair of page numbers per line (lines starting with '#' or '%'
+ * are comments, as in the SNAP datasets). The first time a dump is opened it
+ * is converted into a binary index in compressed sparse row form: for each
+ * direction, an offset per page into one array holding every page's links
+ * back to back. The index also holds the titles and the page numbers sorted
+ * by title for lookups.
+ * <p>
+ * Later runs memory-map the index instead of parsing anything, so opening a
+ * graph takes milliseconds whatever its size, and the graph lives in the page
+ * cache rather than on the heap: heap use stays flat however many links it
+ * has. The index is rebuilt automatically when either text file changes.
+ * A loaded graph is read-only and safe to use from any number of threads.
+ */
+public final class LinkGraph {
+
+    private static final int MAGIC = 0x57474347; // "WGCG"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+
+    // Every section is mapped as one buffer, so none may exceed 2 GiB
+    private static final long MAX_SECTION_BYTES = Integer.MAX_VALUE;
+
+    private final int nodeCount;
+    private final int edgeCount;
+
+    // Compressed sparse rows: the links of page p are targets[offsets[p] .. offsets[p+1])
+    private final IntBuffer outOffsets;
+    private final IntBuffer outTargets;
+    private final IntBuffer inOffsets;
+    private final IntBuffer inTargets;
+
+    // UTF-8 titles back to back, the start of each, and page numbers in title order
+    private final IntBuffer titleOffsets;
+    private final IntBuffer sortedIds;
+    private final ByteBuffer titleBytes;
+
+    /**
+     * Wraps the mapped sections of an index.
+     * @param nodeCount number of pages
+     * @param edgeCount number of links
+     * @param sections the mapped sections, in file order
+     */
+    private LinkGraph(int nodeCount, int edgeCount, ByteBuffer[] sections) {
+        this.nodeCount = nodeCount;
+        this.edgeCount = edgeCount;
+        outOffsets = sections[0].asIntBuffer();
+        outTargets = sections[1].asIntBuffer();
+        inOffsets = sections[2].asIntBuffer();
+        inTargets = sections[3].asIntBuffer();
+        titleOffsets = sections[4].asIntBuffer();
+        sortedIds = sections[5].asIntBuffer();
+        titleBytes = sections[6];
+    }
+
+    /**
+     * Opens a link dump, building its index next to the title list
+     * (as titles.csr) if it is missing or older than the dump.
+     * @param titles the title list
+     * @param edges the edge list
+     * @return the graph
+     * @throws IOException if the dump cannot be read or the index cannot be written
+     */
+    public static LinkGraph loadOrBuild(Path titles, Path edges) throws IOException {
+        Path index = titles.resolveSibling(titles.getFileName() + ".csr");
+        if (Files.exists(index)) {
+            try {
+                LinkGraph cached = load(index, titles, edges);
+                if (cached != null) {
+                    return cached;
+                }
+            } catch (IOException e) {
+                System.err.println("Rebuilding link graph index: " + e.getMessage());
+            }
+        }
+        build(titles, edges, index);
+        LinkGraph graph = load(index, titles, edges);
+        if (graph == null) {
+            throw new IOException("Link dump changed while its index was built: " + titles);
+        }
+        return graph;
+    }
+
+    /**
+     * @return the number of pages
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return the number of links
+     */
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Returns the number of links of a page in the direction a side grows in.
+     * @param side LEFT for links out of the page, RIGHT for links into it
+     * @param node the page number
+     * @return the number of links
+     * @throws IllegalArgumentException if the page number is out of range
+     */
+    public int degree(ColumnPipeline.Side side, int node) {
+        checkNode(node);
+        IntBuffer offsets = side == ColumnPipeline.Side.LEFT ? outOffsets : inOffsets;
+        return offsets.get(node + 1) - offsets.get(node);
+    }
+
+    /**
+     * Returns the links of a page in the direction a side grows in, in the
+     * order they appear in the edge list.
+     * @param side LEFT for the pages it links to, RIGHT for the pages linking to it
+     * @param node the page number
+     * @return the linked page numbers
+     * @throws IllegalArgumentException if the page number is out of range
+     */
+    public int[] neighbors(ColumnPipeline.Side side, int node) {
+        checkNode(node);
+        IntBuffer offsets = side == ColumnPipeline.Side.LEFT ? outOffsets : inOffsets;
+        IntBuffer targets = side == ColumnPipeline.Side.LEFT ? outTargets : inTargets;
+        int from = offsets.get(node);
+        int[] links = new int[offsets.get(node + 1) - from];
+        targets.get(from, links);
+        return links;
+    }
+
+    /**
+     * Generates the column that follows a selection, the way
+     * {@link ListCreator#appendRandomKeys} and {@link ListCreator#prependRandomKeys}
+     * do for letters: the left side follows links out of the selected pages
+     * and the right side follows links into them.
+     * @param nodes page numbers of the selected items
+     * @param side the side the column belongs to
+     * @param maxPerNode most links to follow from each page, or 0 for all of them
+     * @return the distinct linked pages, in selection order
+     * @throws IllegalArgumentException if nodes is null, maxPerNode is negative,
+     *                                  or a page number is out of range
+     */
+    public long[] expand(long[] nodes, ColumnPipeline.Side side, int maxPerNode) {
+        return expand(nodes, side, maxPerNode, null);
+    }
+
+    /**
+     * Generates the column that follows a selection, optionally keeping only
+     * pages the side has not reached before and recording where each new page
+     * was reached from.
+     * @param nodes page numbers of the selected items
+     * @param side the side the column belongs to
+     * @param maxPerNode most links to follow from each page, or 0 for all of them
+     * @param parents the pages the side has reached, mapped to the page they were
+     *                reached from; null to keep every linked page
+     * @return the distinct linked pages (only the newly reached ones if parents is given), in selection order
+     * @throws IllegalArgumentException if nodes is null, maxPerNode is negative,
+     *                                  or a page number is out of range
+     */
+    private long[] expand(long[] nodes, ColumnPipeline.Side side, int maxPerNode, LongIntHashMap parents) {
+        if (nodes == null) {
+            throw new IllegalArgumentException("Nodes cannot be null");
+        }
+        if (maxPerNode < 0) {
+            throw new IllegalArgumentException("Links per node cannot be negative");
+        }
+        IntBuffer offsets = side == ColumnPipeline.Side.LEFT ? outOffsets : inOffsets;
+        IntBuffer targets = side == ColumnPipeline.Side.LEFT ? outTargets : inTargets;
+        LongHashSet column = new LongHashSet();
+        for (long node : nodes) {
+            if (node < 0 || node >= nodeCount) {
+                throw new IllegalArgumentException("No page " + node + " in a graph of " + nodeCount);
+            }
+            int from = offsets.get((int) node);
+            int to = offsets.get((int) node + 1);
+            if (maxPerNode > 0) {
+                to = Math.min(to, from + maxPerNode);
+            }
+            for (int i = from; i < to; i++) {
+                int link = targets.get(i);
+                if (parents == null || parents.putIfAbsent(link, (int) node)) {
+                    column.add(link);
+                }
+            }
+        }
+        return column.toArray();
+    }
+
+    /**
+     * @param node the page number
+     * @return the title of the page
+     * @throws IllegalArgumentException if the page number is out of range
+     */
+    public String titleOf(int node) {
+        checkNode(node);
+        int from = titleOffsets.get(node);
+        byte[] bytes = new byte[titleOffsets.get(node + 1) - from];
+        titleBytes.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Looks up a page by its exact title with a binary search of the sorted titles.
+     * @param title the title
+     * @return the page number, or -1 if no page has that title
+     */
+    public int find(String title) {
+        byte[] key = title.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = nodeCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int node = sortedIds.get(mid);
+            int cmp = compareTitle(titleBytes, titleOffsets, node, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return node;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks a page number.
+     * @param node the page number
+     * @throws IllegalArgumentException if the page number is out of range
+     */
+    private void checkNode(int node) {
+        if (node < 0 || node >= nodeCount) {
+            throw new IllegalArgumentException("No page " + node + " in a graph of " + nodeCount);
+        }
+    }
+
+    /**
+     * Maps an index if it was built from the current versions of the dump files.
+     * @param index the index file
+     * @param titles the title list it should have been built from
+     * @param edges the edge list it should have been built from
+     * @return the graph, or null if the dump changed since the index was built
+     * @throws IOException if the index cannot be read or is not a link graph index
+     */
+    private static LinkGraph load(Path index, Path titles, Path edges) throws IOException {
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not a link graph index: " + index);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not a link graph index: " + index);
+            }
+            int nodeCount = header.getInt(8);
+            int edgeCount = header.getInt(12);
+            long titleByteCount = header.getLong(16);
+            if (header.getLong(24) != Files.size(titles)
+                    || header.getLong(32) != Files.getLastModifiedTime(titles).toMillis()
+                    || header.getLong(40) != Files.size(edges)
+                    || header.getLong(48) != Files.getLastModifiedTime(edges).toMillis()) {
+                return null;
+            }
+
+            long[] sizes = sectionSizes(nodeCount, edgeCount, titleByteCount);
+            long position = HEADER_BYTES;
+            for (long size : sizes) {
+                position += size;
+            }
+            if (channel.size() != position) {
+                throw new IOException("Truncated link graph index: " + index);
+            }
+
+            // The mappings stay valid after the channel is closed
+            ByteBuffer[] sections = new ByteBuffer[sizes.length];
+            position = HEADER_BYTES;
+            for (int s = 0; s < sizes.length; s++) {
+                sections[s] = channel.map(FileChannel.MapMode.READ_ONLY, position, sizes[s])
+                    .order(ByteOrder.LITTLE_ENDIAN);
+                position += sizes[s];
+            }
+            return new LinkGraph(nodeCount, edgeCount, sections);
+        }
+    }
+
+    /**
+     * Returns the byte size of each section of an index.
+     * @param nodeCount number of pages
+     * @param edgeCount number of links
+     * @param titleByteCount total length of the titles in UTF-8
+     * @return the sizes of the out-offsets, out-targets, in-offsets,
+     *         in-targets, title offsets, sorted ids and title sections
+     * @throws IOException if a section would be larger than one mapping allows
+     */
+    private static long[] sectionSizes(int nodeCount, int edgeCount, long titleByteCount) throws IOException {
+        long offsets = 4L * (nodeCount + 1);
+        long targets = 4L * edgeCount;
+        long[] sizes = {offsets, targets, offsets, targets, offsets, 4L * nodeCount, titleByteCount};
+        for (long size : sizes) {
+            if (size > MAX_SECTION_BYTES) {
+                throw new IOException("Link graph too large: a section needs " + size + " bytes");
+            }
+        }
+        return sizes;
+    }
+
+    /**
+     * Converts a link dump into an index. The edge list is read twice, once
+     * to count the links of every page and once to put each link in place,
+     * so no list of edges is ever held in memory; only a few ints per page
+     * are, for the link counters and the title sort. The index is written to
+     * a temporary file and moved into place when complete, so a failed build
+     * never leaves a partial index.
+     * @param titles the title list
+     * @param edges the edge list
+     * @param index the index file to write
+     * @throws IOException if a file cannot be read or written, or the dump is malformed
+     */
+    private static void build(Path titles, Path edges, Path index) throws IOException {
+        long titlesSize = Files.size(titles);
+        long titlesModified = Files.getLastModifiedTime(titles).toMillis();
+        long edgesSize = Files.size(edges);
+        long edgesModified = Files.getLastModifiedTime(edges).toMillis();
+
+        // First pass over the titles: count pages and title bytes
+        long nodes = 0;
+        long titleByteCount = 0;
+        try (BufferedReader reader = Files.newBufferedReader(titles, StandardCharsets.UTF_8)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                nodes++;
+                titleByteCount += line.getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+        if (nodes >= Integer.MAX_VALUE) {
+            throw new IOException("Too many pages: " + nodes);
+        }
+        int nodeCount = (int) nodes;
+
+        // First pass over the edges: count the links out of and into every page
+        int[] outCursor = new int[nodeCount + 1];
+        int[] inCursor = new int[nodeCount + 1];
+        long edges64 = 0;
+        try (EdgeReader reader = new EdgeReader(edges, nodeCount)) {
+            while (reader.next()) {
+                outCursor[reader.from + 1]++;
+                inCursor[reader.to + 1]++;
+                edges64++;
+            }
+        }
+        if (edges64 >= Integer.MAX_VALUE) {
+            throw new IOException("Too many links: " + edges64);
+        }
+        int edgeCount = (int) edges64;
+
+        long[] sizes = sectionSizes(nodeCount, edgeCount, titleByteCount);
+        Path temporary = index.resolveSibling(index.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer[] sections = new MappedByteBuffer[sizes.length];
+            long position = HEADER_BYTES;
+            for (int s = 0; s < sizes.length; s++) {
+                sections[s] = channel.map(FileChannel.MapMode.READ_WRITE, position, sizes[s]);
+                sections[s].order(ByteOrder.LITTLE_ENDIAN);
+                position += sizes[s];
+            }
+            IntBuffer outOffsets = sections[0].asIntBuffer();
+            IntBuffer outTargets = sections[1].asIntBuffer();
+            IntBuffer inOffsets = sections[2].asIntBuffer();
+            IntBuffer inTargets = sections[3].asIntBuffer();
+            IntBuffer titleOffsets = sections[4].asIntBuffer();
+            IntBuffer sortedIds = sections[5].asIntBuffer();
+            ByteBuffer titleBytes = sections[6];
+
+            // Offsets are the running totals of the counts; the cursors start at them
+            for (int p = 0; p < nodeCount; p++) {
+                outCursor[p + 1] += outCursor[p];
+                inCursor[p + 1] += inCursor[p];
+            }
+            for (int p = 0; p <= nodeCount; p++) {
+                outOffsets.put(p, outCursor[p]);
+                inOffsets.put(p, inCursor[p]);
+            }
+
+            // Second pass over the edges: put every link at its page's cursor
+            try (EdgeReader reader = new EdgeReader(edges, nodeCount)) {
+                while (reader.next()) {
+                    outTargets.put(outCursor[reader.from]++, reader.to);
+                    inTargets.put(inCursor[reader.to]++, reader.from);
+                }
+            }
+
+            // Second pass over the titles: copy them in and record where each starts
+            int offset = 0;
+            int node = 0;
+            try (BufferedReader reader = Files.newBufferedReader(titles, StandardCharsets.UTF_8)) {
+                for (String line = reader.readLine(); line != null && node < nodeCount; line = reader.readLine()) {
+                    byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+                    titleOffsets.put(node++, offset);
+                    titleBytes.put(offset, bytes);
+                    offset += bytes.length;
+                }
+            }
+            if (node != nodeCount || offset != titleByteCount) {
+                throw new IOException("Title list changed while its index was built: " + titles);
+            }
+            titleOffsets.put(nodeCount, offset);
+
+            int[] order = sortByTitle(nodeCount, titleBytes, titleOffsets);
+            sortedIds.put(0, order);
+            for (MappedByteBuffer section : sections) {
+                section.force();
+            }
+
+            // The header goes in last, so an interrupted build is never mistaken for an index
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, nodeCount).putInt(12, edgeCount)
+                .putLong(16, titleByteCount).putLong(24, titlesSize).putLong(32, titlesModified)
+                .putLong(40, edgesSize).putLong(48, edgesModified);
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        Files.move(temporary, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Sorts the page numbers by title with a bottom-up merge sort. The titles
+     * are compared as UTF-8 bytes where they lie in the mapped file, so no
+     * title is turned into a String; the page numbers being sorted live in two
+     * int arrays on the heap, 8 bytes per page.
+     * @param nodeCount number of pages
+     * @param titleBytes the titles
+     * @param titleOffsets the start of each title
+     * @return the page numbers in title order
+     */
+    private static int[] sortByTitle(int nodeCount, ByteBuffer titleBytes, IntBuffer titleOffsets) {
+        int[] order = new int[nodeCount];
+        for (int p = 0; p < nodeCount; p++) {
+            order[p] = p;
+        }
+        int[] scratch = new int[nodeCount];
+        for (int width = 1; width < nodeCount; width *= 2) {
+            for (int low = 0; low < nodeCount; low += 2 * width) {
+                int mid = Math.min(low + width, nodeCount);
+                int high = Math.min(low + 2 * width, nodeCount);
+                int i = low;
+                int j = mid;
+                for (int k = low; k < high; k++) {
+                    if (i < mid && (j >= high
+                            || compareTitles(titleBytes, titleOffsets, order[i], order[j]) <= 0)) {
+                        scratch[k] = order[i++];
+                    } else {
+                        scratch[k] = order[j++];
+                    }
+                }
+            }
+            int[] swap = order;
+            order = scratch;
+            scratch = swap;
+        }
+        return order;
+    }
+
+    /**
+     * Compares the titles of two pages byte by byte, which orders UTF-8 text
+     * by code point.
+     * @param titleBytes the titles
+     * @param titleOffsets the start of each title
+     * @param a one page number
+     * @param b another page number
+     * @return negative, zero or positive as the first title sorts before, with or after the second
+     */
+    private static int compareTitles(ByteBuffer titleBytes, IntBuffer titleOffsets, int a, int b) {
+        int aFrom = titleOffsets.get(a);
+        int aLength = titleOffsets.get(a + 1) - aFrom;
+        int bFrom = titleOffsets.get(b);
+        int bLength = titleOffsets.get(b + 1) - bFrom;
+        for (int i = 0; i < Math.min(aLength, bLength); i++) {
+            int cmp = Byte.compareUnsigned(titleBytes.get(aFrom + i), titleBytes.get(bFrom + i));
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(aLength, bLength);
+    }
+
+    /**
+     * Compares the title of a page with a title given as UTF-8 bytes.
+     * @param titleBytes the titles
+     * @param titleOffsets the start of each title
+     * @param node the page number
+     * @param key the title to compare with
+     * @return negative, zero or positive as the page's title sorts before, with or after key
+     */
+    private static int compareTitle(ByteBuffer titleBytes, IntBuffer titleOffsets, int node, byte[] key) {
+        int from = titleOffsets.get(node);
+        int length = titleOffsets.get(node + 1) - from;
+        for (int i = 0; i < Math.min(length, key.length); i++) {
+            int cmp = Byte.compareUnsigned(titleBytes.get(from + i), key[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    /**
+     * Reads "from to" pairs from an edge list without creating a String per
+     * line, since edge lists can have hundreds of millions of lines. The file
+     * is read in large blocks and parsed straight from the block.
+     */
+    private static final class EdgeReader implements AutoCloseable {
+        private static final int BLOCK_BYTES = 1 << 16;
+
+        private final InputStream in;
+        private final Path path;
+        private final int nodeCount;
+        private final byte[] block = new byte[BLOCK_BYTES];
+        private int position;
+        private int limit;
+        private long line;
+
+        // The pair read by the last successful call to next()
+        int from;
+        int to;
+
+        /**
+         * Opens an edge list.
+         * @param path the edge list
+         * @param nodeCount number of pages, to check the page numbers against
+         * @throws IOException if the file cannot be opened
+         */
+        EdgeReader(Path path, int nodeCount) throws IOException {
+            this.in = Files.newInputStream(path);
+            this.path = path;
+            this.nodeCount = nodeCount;
+        }
+
+        /**
+         * Reads the next pair, skipping blank and comment lines.
+         * @return true if a pair was read, false at the end of the file
+         * @throws IOException if the file cannot be read or a line is not a valid pair
+         */
+        boolean next() throws IOException {
+            while (true) {
+                int c = peek();
+                if (c < 0) {
+                    return false;
+                }
+                line++;
+                if (c == '#' || c == '%') {
+                    skipLine();
+                    continue;
+                }
+                long first = readNumber();
+                if (first == -1) {
+                    skipLine(); // Blank line
+                    continue;
+                }
+                long second = readNumber();
+                if (first < 0 || second < 0 || first >= nodeCount || second >= nodeCount) {
+                    throw new IOException(path + ":" + line + ": expected two page numbers below " + nodeCount);
+                }
+                from = (int) first;
+                to = (int) second;
+                skipLine();
+                return true;
+            }
+        }
+
+        /**
+         * Reads a non-negative number after skipping spaces, tabs and commas,
+         * leaving the character after it unread.
+         * @return the number, -1 if the line ended first, or -2 if something else came first
+         * @throws IOException if the file cannot be read
+         */
+        private long readNumber() throws IOException {
+            int c = peek();
+            while (c == ' ' || c == '\t' || c == ',') {
+                position++;
+                c = peek();
+            }
+            if (c == '\n' || c == '\r' || c < 0) {
+                return -1;
+            }
+            if (c < '0' || c > '9') {
+                return -2;
+            }
+            long value = 0;
+            while (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                if (value > Integer.MAX_VALUE) {
+                    return -2;
+                }
+                position++;
+                c = peek();
+            }
+            return value;
+        }
+
+        /**
+         * Skips to the start of the next line.
+         * @throws IOException if the file cannot be read
+         */
+        private void skipLine() throws IOException {
+            int c = peek();
+            while (c >= 0 && c != '\n') {
+                position++;
+                c = peek();
+            }
+            position++;
+        }
+
+        /**
+         * Returns the next character without consuming it, reading the next
+         * block when the current one is used up.
+         * @return the next byte, or -1 at the end of the file
+         * @throws IOException if the file cannot be read
+         */
+        private int peek() throws IOException {
+            if (position >= limit) {
+                limit = in.readNBytes(block, 0, BLOCK_BYTES);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return block[position] & 0xFF;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Command line mode: opens a link dump and looks for a chain between two
+     * pages, growing one column per side per round the way the game does,
+     * with every item of a column selected.
+     * Arguments: titles, edges, from title, to title, and optionally the
+     * columns per side (default 3) and the links followed per page (default 0, all).
+     * @param args command line arguments
+     */
+    public static void runCli(String[] args) {
+        if (args.length < 4) {
+            System.err.println("Usage: --graph <titles> <edges> <from title> <to title> [depth] [linksPerPage]");
+            return;
+        }
+        int depth = args.length > 4 ? Integer.parseInt(args[4]) : GUI.DEFAULT_DEPTH;
+        int maxPerNode = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+
+        LinkGraph graph;
+        long start = System.nanoTime();
+        try {
+            graph = loadOrBuild(Paths.get(args[0]), Paths.get(args[1]));
+        } catch (IOException e) {
+            System.err.println("Could not open link graph: " + e.getMessage());
+            return;
+        }
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf("Graph: %d pages, %d links (opened in %s, heap in use %d MiB)%n",
+            graph.getNodeCount(), graph.getEdgeCount(), LatencyHistogram.formatNanos(System.nanoTime() - start),
+            (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+
+        int source = graph.find(args[2]);
+        int target = graph.find(args[3]);
+        if (source < 0 || target < 0) {
+            System.err.println("No page titled " + (source < 0 ? args[2] : args[3]));
+            return;
+        }
+        start = System.nanoTime();
+        List<String> chain = graph.findChain(source, target, depth, maxPerNode);
+        String took = LatencyHistogram.formatNanos(System.nanoTime() - start);
+        System.out.println(chain.isEmpty() ? "No chain within " + depth + " columns per side (" + took + ")"
+            : String.join(" - ", chain) + " (" + took + ")");
+    }
+
+    /**
+     * Grows a column from each page in turn, out-links from the source and
+     * in-links from the target, until a page reached from one side has been
+     * reached from the other. Every page reached remembers the page it was
+     * reached from, so the chain is read back from the meeting page.
+     * @param source the page the left side starts from
+     * @param target the page the right side ends at
+     * @param depth most columns per side
+     * @param maxPerNode most links to follow from each page, or 0 for all of them
+     * @return the titles of the chain from source to target, or an empty list if none was found
+     */
+    private List<String> findChain(int source, int target, int depth, int maxPerNode) {
+        LongIntHashMap leftParents = new LongIntHashMap();
+        LongIntHashMap rightParents = new LongIntHashMap();
+        leftParents.putIfAbsent(source, -1);
+        rightParents.putIfAbsent(target, -1);
+        long[] left = {source};
+        long[] right = {target};
+
+        int meeting = source == target ? source : -1;
+        for (int round = 0; round < depth && meeting < 0; round++) {
+            left = expand(left, ColumnPipeline.Side.LEFT, maxPerNode, leftParents);
+            meeting = firstReached(left, rightParents);
+            if (meeting < 0) {
+                right = expand(right, ColumnPipeline.Side.RIGHT, maxPerNode, rightParents);
+                meeting = firstReached(right, leftParents);
+            }
+        }
+        if (meeting < 0) {
+            return Collections.emptyList();
+        }
+
+        List<String> chain = new ArrayList<>();
+        for (int p = meeting; p >= 0; p = leftParents.get(p, -1)) {
+            chain.add(0, titleOf(p));
+        }
+        for (int p = rightParents.get(meeting, -1); p >= 0; p = rightParents.get(p, -1)) {
+            chain.add(titleOf(p));
+        }
+        return chain;
+    }
+
+    /**
+     * @param column the pages of a column
+     * @param reached the pages the other side has reached
+     * @return the first page of the column the other side has reached, or -1 if there is none
+     */
+    private static int firstReached(long[] column, LongIntHashMap reached) {
+        for (long node : column) {
+            if (reached.containsKey(node)) {
+                return (int) node;
+            }
+        }
+        return -1;
+    }
+}
@@ -1,4 +1,7 @@
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.random.RandomGenerator;
 
 /**
  * This class provides static methods to create content for JList GUI
@@ -7,7 +10,14 @@ import java.util.*;
  */
 public class ListCreator {
 
-    private static final Random random = new Random();
+    /**
+     * Smallest number of candidates (bases times count per base) worth
+     * splitting across the fork-join pool; smaller jobs run sequentially.
+     */
+    public static final int PARALLEL_THRESHOLD = 4096;
+
+    // Number of bases a fork-join leaf expands without splitting further
+    private static final int LEAF_BASES = 64;
 
     // Private no-arg constructor to prevent attempts to instantiate this class.
     private ListCreator() {}
@@ -37,7 +47,8 @@ public class ListCreator {
     /**
      * Generates strings by appending random characters to the end of selected base strings.
      * For each base string, creates multiple new strings by adding random characters.
-     * Duplicates are automatically removed.
+     * The strings added to one base are always distinct, so each base gets exactly
+     * min(countPerBase, 26^additionalChars) of them; the result holds no duplicates.
      * @param baseStrings the list of base strings to extend
      * @param countPerBase number of strings to generate per base string
      * @param additionalChars number of random characters to append to the end
@@ -55,6 +66,14 @@ public class ListCreator {
             throw new IllegalArgumentException("Additional characters cannot be negative");
         }
 
+        // Short letter-only strings take the allocation-free packed path
+        long[] baseKeys = PackedKey.encodeAll(baseStrings, additionalChars);
+        if (baseKeys != null && baseKeys.length > 0) {
+            long[] keys = appendRandomKeys(baseKeys, countPerBase, additionalChars);
+            return PackedKey.decodeAll(keys, keys.length);
+        }
+
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
         Set<String> uniqueStrings = new HashSet<>();
 
         for (String base : baseStrings) {
@@ -63,30 +82,27 @@ public class ListCreator {
             }
 
             // Determine case based on the base string - similar to makeList's prefix handling
-            boolean isUpperCase = Character.isUpperCase(base.charAt(0));
+            char firstLetter = Character.isUpperCase(base.charAt(0)) ? 'A' : 'a';
 
-            int attempts = 0;
-            int generated = 0;
-            // Generate countPerBase items per base string (similar to makeList's count parameter)
-            while (generated < countPerBase && attempts < countPerBase * 3) {
+            // Draw countPerBase distinct letter runs per base string (similar to makeList's count parameter)
+            RandomGenerator rng = RandomSource.current();
+            for (long run : LetterSampler.sample(rng, countPerBase, additionalChars)) {
                 StringBuilder sb = new StringBuilder(base);
 
                 // Append random characters to the end (similar to makeList adding "item {n}")
                 for (int i = 0; i < additionalChars; i++) {
-                    if (isUpperCase) {
-                        sb.append(randomUpperCaseLetter());
-                    } else {
-                        sb.append(randomLowerCaseLetter());
-                    }
+                    sb.append((char) (firstLetter + LetterSampler.letterAt(run, i, rng)));
                 }
 
-                if (uniqueStrings.add(sb.toString())) {
-                    generated++;
+                if (!uniqueStrings.add(sb.toString()) && Metrics.ENABLED) {
+                    Metrics.DUPLICATES_DROPPED.increment();
                 }
-                attempts++;
             }
         }
 
+        if (Metrics.ENABLED) {
+            recordExpansion(false, start, uniqueStrings.size());
+        }
         return uniqueStrings.toArray(new String[0]);
     }
 
@@ -94,7 +110,7 @@ public class ListCreator {
      * Generates strings by prepending random characters to the beginning of selected strings.
      * For each string, creates multiple new strings by adding random characters at the start.
      * For right-side columns, prepends UPPERCASE letters regardless of the base string's case.
-     * Duplicates are removed.
+     * Each base gets exactly min(countPerBase, 26^additionalChars) distinct strings.
      * Uses the makeList concept but prepends random characters instead of using a prefix.
      * @param baseStrings the list of base strings to extend
      * @param countPerBase number of strings to generate per base string
@@ -113,6 +129,14 @@ public class ListCreator {
             throw new IllegalArgumentException("Additional characters cannot be negative");
         }
 
+        // Short letter-only strings take the allocation-free packed path
+        long[] baseKeys = PackedKey.encodeAll(baseStrings, additionalChars);
+        if (baseKeys != null && baseKeys.length > 0) {
+            long[] keys = prependRandomKeys(baseKeys, countPerBase, additionalChars);
+            return PackedKey.decodeAll(keys, keys.length);
+        }
+
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
         Set<String> uniqueStrings = new HashSet<>();
 
         for (String base : baseStrings) {
@@ -121,42 +145,382 @@ public class ListCreator {
             }
 
             // For the right-side columns, we always prepend uppercase letters
-            // yZ -> XyZ -> WXyZ -> VWXyZ
+            // Z -> YZ -> XYZ -> WXYZ
             // This is similar to makeList's prefix concept but with random characters
-            int attempts = 0;
-            int generated = 0;
-            while (generated < countPerBase && attempts < countPerBase * 3) {
+            RandomGenerator rng = RandomSource.current();
+            for (long run : LetterSampler.sample(rng, countPerBase, additionalChars)) {
                 StringBuilder sb = new StringBuilder();
 
                 // Prepend random UPPERCASE characters to the beginning
                 for (int i = 0; i < additionalChars; i++) {
-                    sb.append(randomUpperCaseLetter());
+                    sb.append((char) ('A' + LetterSampler.letterAt(run, i, rng)));
                 }
                 sb.append(base);
 
-                if (uniqueStrings.add(sb.toString())) {
-                    generated++;
+                if (!uniqueStrings.add(sb.toString()) && Metrics.ENABLED) {
+                    Metrics.DUPLICATES_DROPPED.increment();
                 }
-                attempts++;
             }
         }
 
+        if (Metrics.ENABLED) {
+            recordExpansion(true, start, uniqueStrings.size());
+        }
         return uniqueStrings.toArray(new String[0]);
     }
 
     /**
-     * Generates a random uppercase letter.
-     * @return a random uppercase letter from A to Z
+     * Packed-key version of {@link #appendRandomChars}. Works entirely on
+     * {@link PackedKey} values, so no strings are created for candidates,
+     * including the duplicates that are thrown away.
+     * @param baseKeys packed base strings (must be non-empty keys)
+     * @param countPerBase number of keys to generate per base key
+     * @param additionalChars number of random characters to append to the end
+     * @return array of unique packed keys, in generation order
+     * @throws IllegalArgumentException if baseKeys is null or empty, counts are negative,
+     *                                  or the results would be longer than PackedKey.MAX_LENGTH
+     */
+    public static long[] appendRandomKeys(long[] baseKeys, int countPerBase, int additionalChars) {
+        return expandBatch(baseKeys, countPerBase, additionalChars, false, null, false).keys();
+    }
+
+    /**
+     * Seeded version of {@link #appendRandomKeys}. The letters added to each
+     * base come from a stream derived from the seed and that base, so the same
+     * seed always gives a base the same children, whichever other bases are
+     * expanded with it.
+     * @param baseKeys packed base strings (must be non-empty keys)
+     * @param countPerBase number of keys to generate per base key
+     * @param additionalChars number of random characters to append to the end
+     * @param seed the challenge seed
+     * @return array of unique packed keys, in generation order
+     * @throws IllegalArgumentException if baseKeys is null or empty, counts are negative,
+     *                                  or the results would be longer than PackedKey.MAX_LENGTH
      */
-    private static char randomUpperCaseLetter() {
-        return (char) ('A' + random.nextInt(26));
+    public static long[] appendRandomKeys(long[] baseKeys, int countPerBase, int additionalChars, long seed) {
+        return expandBatch(baseKeys, countPerBase, additionalChars, false, seed, false).keys();
     }
 
     /**
-     * Generates a random lowercase letter.
-     * @return a random lowercase letter from a to z
+     * Packed-key version of {@link #prependRandomChars}. Always prepends
+     * uppercase letters, like the string version.
+     * @param baseKeys packed base strings (must be non-empty keys)
+     * @param countPerBase number of keys to generate per base key
+     * @param additionalChars number of random characters to prepend to the beginning
+     * @return array of unique packed keys, in generation order
+     * @throws IllegalArgumentException if baseKeys is null or empty, counts are negative,
+     *                                  or the results would be longer than PackedKey.MAX_LENGTH
      */
-    private static char randomLowerCaseLetter() {
-        return (char) ('a' + random.nextInt(26));
+    public static long[] prependRandomKeys(long[] baseKeys, int countPerBase, int additionalChars) {
+        return expandBatch(baseKeys, countPerBase, additionalChars, true, null, false).keys();
+    }
+
+    /**
+     * Seeded version of {@link #prependRandomKeys}; see {@link #appendRandomKeys(long[], int, int, long)}.
+     * @param baseKeys packed base strings (must be non-empty keys)
+     * @param countPerBase number of keys to generate per base key
+     * @param additionalChars number of random characters to prepend to the beginning
+     * @param seed the challenge seed
+     * @return array of unique packed keys, in generation order
+     * @throws IllegalArgumentException if baseKeys is null or empty, counts are negative,
+     *                                  or the results would be longer than PackedKey.MAX_LENGTH
+     */
+    public static long[] prependRandomKeys(long[] baseKeys, int countPerBase, int additionalChars, long seed) {
+        return expandBatch(baseKeys, countPerBase, additionalChars, true, seed, false).keys();
+    }
+
+    /**
+     * Parallel version of {@link #appendRandomChars} for large selections.
+     * The bases are split across the common fork-join pool; each worker uses
+     * its own thread's random generator and writes its own slice of one output
+     * array in base order, so the result holds unique strings just like the
+     * sequential version. Small jobs, and strings that cannot be packed,
+     * are expanded sequentially.
+     * @param baseStrings the list of base strings to extend
+     * @param countPerBase number of strings to generate per base string
+     * @param additionalChars number of random characters to append to the end
+     * @return array of unique generated strings
+     * @throws IllegalArgumentException if baseStrings is null or empty, or counts are negative
+     */
+    public static String[] appendRandomCharsParallel(List<String> baseStrings, int countPerBase, int additionalChars) {
+        return expandParallel(baseStrings, countPerBase, additionalChars, false);
+    }
+
+    /**
+     * Parallel version of {@link #prependRandomChars} for large selections.
+     * Works like {@link #appendRandomCharsParallel} but prepends uppercase letters.
+     * @param baseStrings the list of base strings to extend
+     * @param countPerBase number of strings to generate per base string
+     * @param additionalChars number of random characters to prepend to the beginning
+     * @return array of unique generated strings
+     * @throws IllegalArgumentException if baseStrings is null or empty, or counts are negative
+     */
+    public static String[] prependRandomCharsParallel(List<String> baseStrings, int countPerBase, int additionalChars) {
+        return expandParallel(baseStrings, countPerBase, additionalChars, true);
+    }
+
+    /**
+     * Parallel version of {@link #appendRandomKeys} for large selections.
+     * @param baseKeys packed base strings (must be non-empty keys)
+     * @param countPerBase number of keys to generate per base key
+     * @param additionalChars number of random characters to append to the end
+     * @return array of unique packed keys, in base order
+     * @throws IllegalArgumentException if baseKeys is null or empty, counts are negative,
+     *                                  or the results would be longer than PackedKey.MAX_LENGTH
+     */
+    public static long[] appendRandomKeysParallel(long[] baseKeys, int countPerBase, int additionalChars) {
+        return expandBatch(baseKeys, countPerBase, additionalChars, false, null, true).keys();
+    }
+
+    /**
+     * Seeded parallel version of {@link #appendRandomKeys}. Each base draws
+     * from its own seeded stream, so for the distinct, equal-length bases of a
+     * column this gives the same keys as
+     * {@link #appendRandomKeys(long[], int, int, long)}, however the work is split.
+     * @param baseKeys packed base strings (must be non-empty keys)
+     * @param countPerBase number of keys to generate per base key
+     * @param additionalChars number of random characters to append to the end
+     * @param seed the challenge seed
+     * @return array of unique packed keys, in base order
+     * @throws IllegalArgumentException if baseKeys is null or empty, counts are negative,
+     *                                  or the results would be longer than PackedKey.MAX_LENGTH
+     */
+    public static long[] appendRandomKeysParallel(long[] baseKeys, int countPerBase, int additionalChars,
+                                                  long seed) {
+        return expandBatch(baseKeys, countPerBase, additionalChars, false, seed, true).keys();
+    }
+
+    /**
+     * Parallel version of {@link #prependRandomKeys} for large selections.
+     * @param baseKeys packed base strings (must be non-empty keys)
+     * @param countPerBase number of keys to generate per base key
+     * @param additionalChars number of random characters to prepend to the beginning
+     * @return array of unique packed keys, in base order
+     * @throws IllegalArgumentException if baseKeys is null or empty, counts are negative,
+     *                                  or the results would be longer than PackedKey.MAX_LENGTH
+     */
+    public static long[] prependRandomKeysParallel(long[] baseKeys, int countPerBase, int additionalChars) {
+        return expandBatch(baseKeys, countPerBase, additionalChars, true, null, true).keys();
+    }
+
+    /**
+     * Seeded parallel version of {@link #prependRandomKeys}; see
+     * {@link #appendRandomKeysParallel(long[], int, int, long)}.
+     * @param baseKeys packed base strings (must be non-empty keys)
+     * @param countPerBase number of keys to generate per base key
+     * @param additionalChars number of random characters to prepend to the beginning
+     * @param seed the challenge seed
+     * @return array of unique packed keys, in base order
+     * @throws IllegalArgumentException if baseKeys is null or empty, counts are negative,
+     *                                  or the results would be longer than PackedKey.MAX_LENGTH
+     */
+    public static long[] prependRandomKeysParallel(long[] baseKeys, int countPerBase, int additionalChars,
+                                                   long seed) {
+        return expandBatch(baseKeys, countPerBase, additionalChars, true, seed, true).keys();
+    }
+
+    /**
+     * Shared implementation of the parallel string expanders.
+     * @param baseStrings the list of base strings to extend
+     * @param countPerBase number of strings to generate per base string
+     * @param additionalChars number of random characters to add
+     * @param prepend true to prepend uppercase letters, false to append
+     * @return array of unique generated strings
+     */
+    private static String[] expandParallel(List<String> baseStrings, int countPerBase, int additionalChars,
+                                           boolean prepend) {
+        long[] baseKeys = (baseStrings == null || baseStrings.isEmpty() || countPerBase < 0 || additionalChars < 0)
+            ? null : PackedKey.encodeAll(baseStrings, additionalChars);
+        if (baseKeys == null || baseKeys.length == 0) {
+            // Let the sequential version validate and handle the unpackable cases
+            return prepend ? prependRandomChars(baseStrings, countPerBase, additionalChars)
+                : appendRandomChars(baseStrings, countPerBase, additionalChars);
+        }
+
+        long[] keys = expandBatch(baseKeys, countPerBase, additionalChars, prepend, null, true).keys();
+        return PackedKey.decodeAll(keys, keys.length);
+    }
+
+    /**
+     * Expands a whole selection in one pass. Duplicate bases are dropped,
+     * then every remaining base gets exactly min(countPerBase, 26^additionalChars)
+     * children, written straight into one output array sized up front. Children
+     * of distinct bases always differ (they keep their base as a prefix or
+     * suffix), so no set is needed to keep the result unique. Large batches
+     * are split across the common fork-join pool, each task writing its own
+     * slice of the output.
+     * @param baseKeys packed base strings (must be non-empty keys)
+     * @param countPerBase number of keys to generate per base key
+     * @param additionalChars number of random characters to add
+     * @param prepend true to prepend uppercase letters, false to append
+     * @param seed the challenge seed
+     * @return the bases and their children, in base order
+     * @throws IllegalArgumentException if baseKeys is null or empty, counts are negative,
+     *                                  or the results would be longer than PackedKey.MAX_LENGTH
+     */
+    public static KeyColumn expandBatch(long[] baseKeys, int countPerBase, int additionalChars, boolean prepend,
+                                        long seed) {
+        return expandBatch(baseKeys, countPerBase, additionalChars, prepend, seed, true);
+    }
+
+    /**
+     * Shared implementation of the key expanders.
+     * @param baseKeys packed base strings
+     * @param countPerBase number of keys to generate per base key
+     * @param additionalChars number of random characters to add
+     * @param prepend true to prepend uppercase letters, false to append
+     * @param seed the challenge seed, or null to use each thread's generator
+     * @param parallel true to split batches that generate PARALLEL_THRESHOLD keys or more across threads
+     * @return the bases and their children, in base order
+     */
+    private static KeyColumn expandBatch(long[] baseKeys, int countPerBase, int additionalChars, boolean prepend,
+                                         Long seed, boolean parallel) {
+        checkKeyArguments(baseKeys, countPerBase, additionalChars);
+
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        long[] bases = distinct(baseKeys);
+        int perBase = (int) Math.min(countPerBase, LetterSampler.space(additionalChars));
+        if ((long) bases.length * perBase > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many keys: " + bases.length + " x " + perBase);
+        }
+        long[] keys = new long[bases.length * perBase];
+        if (parallel && keys.length >= PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(
+                new ExpandTask(bases, 0, bases.length, perBase, additionalChars, prepend, seed, keys));
+        } else {
+            expandKeys(bases, 0, bases.length, perBase, additionalChars, prepend, seed, keys);
+        }
+
+        if (Metrics.ENABLED) {
+            recordExpansion(prepend, start, keys.length);
+            Metrics.DUPLICATES_DROPPED.add((long) (baseKeys.length - bases.length) * perBase);
+        }
+        return new KeyColumn(bases, keys, perBase);
+    }
+
+    /**
+     * Drops repeated bases, keeping the first occurrence of each.
+     * @param baseKeys packed base strings
+     * @return the distinct bases in their original order; baseKeys itself if it has no repeats
+     */
+    private static long[] distinct(long[] baseKeys) {
+        LongHashSet seen = new LongHashSet(baseKeys.length);
+        for (long base : baseKeys) {
+            seen.add(base);
+        }
+        return seen.size() == baseKeys.length ? baseKeys : seen.toArray();
+    }
+
+    /**
+     * Expands a range of distinct base keys into their slices of the output.
+     * Each base gets perBase distinct letter runs sampled without replacement,
+     * so no draws are wasted on duplicates.
+     * @param bases distinct packed base strings
+     * @param from first base to expand (inclusive)
+     * @param to last base to expand (exclusive)
+     * @param perBase number of keys to generate per base key (at most 26^additionalChars)
+     * @param additionalChars number of random characters to add
+     * @param prepend true to prepend uppercase letters, false to append
+     * @param seed the challenge seed to derive a stream per base from,
+     *             or null to draw from the calling thread's generator
+     * @param out the output array; base b writes positions b*perBase to (b+1)*perBase-1
+     */
+    private static void expandKeys(long[] bases, int from, int to, int perBase, int additionalChars,
+                                   boolean prepend, Long seed, long[] out) {
+        RandomGenerator threadRandom = RandomSource.current();
+        for (int b = from; b < to; b++) {
+            long base = bases[b];
+            // Keys are at most 60 bits, so the direction fits in the low bit of the stream key
+            RandomGenerator rnd = (seed == null) ? threadRandom
+                : RandomSource.forStream(seed, (base << 1) | (prepend ? 1 : 0));
+            // Appending keeps the case of the base string, as appendRandomChars does;
+            // prepending always uses uppercase, as prependRandomChars does
+            boolean isUpperCase = prepend || PackedKey.isUpperCode(PackedKey.firstCode(base));
+
+            int slot = b * perBase;
+            for (long run : LetterSampler.sample(rnd, perBase, additionalChars)) {
+                long key = base;
+                for (int i = 0; i < additionalChars; i++) {
+                    int letter = LetterSampler.letterAt(run, i, rnd);
+                    int code = isUpperCase ? PackedKey.upperCode(letter) : PackedKey.lowerCode(letter);
+                    key = prepend ? PackedKey.prepend(key, code) : PackedKey.append(key, code);
+                }
+                out[slot++] = key;
+            }
+        }
+    }
+
+    /**
+     * Records the time and output of one expansion in the metrics.
+     * @param prepend true if characters were prepended, false if appended
+     * @param startNanos the value of System.nanoTime() when the expansion started
+     * @param generated number of unique items produced
+     */
+    private static void recordExpansion(boolean prepend, long startNanos, int generated) {
+        (prepend ? Metrics.PREPEND : Metrics.APPEND).recordSince(startNanos);
+        Metrics.GENERATED.add(generated);
+    }
+
+    /**
+     * Fork-join task that expands a range of bases, splitting it in half
+     * until it is small enough to run directly. The halves write disjoint
+     * slices of the same output array, so nothing needs merging.
+     */
+    private static final class ExpandTask extends RecursiveAction {
+        private final long[] bases;
+        private final int from;
+        private final int to;
+        private final int perBase;
+        private final int additionalChars;
+        private final boolean prepend;
+        private final Long seed;
+        private final long[] out;
+
+        ExpandTask(long[] bases, int from, int to, int perBase, int additionalChars, boolean prepend,
+                   Long seed, long[] out) {
+            this.bases = bases;
+            this.from = from;
+            this.to = to;
+            this.perBase = perBase;
+            this.additionalChars = additionalChars;
+            this.prepend = prepend;
+            this.seed = seed;
+            this.out = out;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_BASES) {
+                expandKeys(bases, from, to, perBase, additionalChars, prepend, seed, out);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ExpandTask(bases, from, mid, perBase, additionalChars, prepend, seed, out),
+                new ExpandTask(bases, mid, to, perBase, additionalChars, prepend, seed, out));
+        }
+    }
+
+    /**
+     * Validates the arguments of the packed-key expanders.
+     * @param baseKeys packed base strings
+     * @param countPerBase number of keys to generate per base key
+     * @param additionalChars number of characters to add
+     * @throws IllegalArgumentException if any argument is invalid
+     */
+    private static void checkKeyArguments(long[] baseKeys, int countPerBase, int additionalChars) {
+        if (baseKeys == null || baseKeys.length == 0) {
+            throw new IllegalArgumentException("Base keys cannot be null or empty");
+        }
+        if (countPerBase < 0) {
+            throw new IllegalArgumentException("Count per base cannot be negative");
+        }
+        if (additionalChars < 0) {
+            throw new IllegalArgumentException("Additional characters cannot be negative");
+        }
+        for (long base : baseKeys) {
+            if (base <= 0 || PackedKey.length(base) + additionalChars > PackedKey.MAX_LENGTH) {
+                throw new IllegalArgumentException("Base key cannot be extended: " + base);
+            }
+        }
     }
-}
\ No newline at end of file
+}
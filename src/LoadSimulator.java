@@ -0,0 +1,230 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.random.RandomGenerator;
+
+/**
+ * Headless load test: plays many simulated games at once, each on its own
+ * virtual thread, through the same {@link GameSession} code the window uses.
+ * Every simulated player repeatedly picks a side, a column and a few items in
+ * it, selects them, and checks for a match, until the sides meet or it runs
+ * out of actions. Players yield (or pause for a think time) between actions,
+ * so thousands of sessions interleave on a few carrier threads the way
+ * concurrent players would share a server.
+ * <p>
+ * The run reports the latency of each action (expansion, installing the new
+ * column and the match check) and the number of sessions finished per
+ * second. To see how these change with the number of cores, pass a list of
+ * core counts: the simulation is then repeated in a child JVM per count, with
+ * the virtual thread scheduler and the JVM's view of the processors limited
+ * to that many cores.
+ */
+public class LoadSimulator {
+
+    /** Number of sessions played when none is given. */
+    public static final int DEFAULT_SESSIONS = 10_000;
+    /** Largest number of actions per session when none is given. */
+    public static final int DEFAULT_ACTIONS = 20;
+
+    // Random stream for player choices; expansion streams are keyed by non-negative base keys
+    private static final long PLAYER_STREAM = -1L;
+
+    private final int sessions;
+    private final int actionsPerSession;
+    private final long thinkMillis;
+    private final int depth;
+
+    private final LatencyHistogram actionLatency = new LatencyHistogram("action");
+    private final LongAdder actions = new LongAdder();
+    private final LongAdder solved = new LongAdder();
+
+    /**
+     * Creates a simulator using the window's expansion settings.
+     * @param sessions number of sessions to play
+     * @param actionsPerSession largest number of selections a session makes
+     * @param thinkMillis pause between a player's actions, or 0 to only yield
+     * @param depth number of columns per side
+     * @throws IllegalArgumentException if a count is negative, or the depth cannot be played
+     */
+    public LoadSimulator(int sessions, int actionsPerSession, long thinkMillis, int depth) {
+        if (sessions < 0 || actionsPerSession < 0 || thinkMillis < 0) {
+            throw new IllegalArgumentException("Counts cannot be negative");
+        }
+        ColumnPipeline.checkSettings(depth, ChainSolver.DEFAULT_COUNT_PER_BASE,
+            ChainSolver.DEFAULT_ADDITIONAL_CHARS);
+        this.sessions = sessions;
+        this.actionsPerSession = actionsPerSession;
+        this.thinkMillis = thinkMillis;
+        this.depth = depth;
+    }
+
+    /**
+     * Plays every session, one virtual thread each, and waits for all of them.
+     * Session i plays the challenge with seed baseSeed + i, so a run is
+     * repeatable whatever the scheduling.
+     * @param baseSeed the seed of the first session's challenge
+     * @return the wall-clock time of the run in nanoseconds
+     */
+    public long run(long baseSeed) {
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < sessions; i++) {
+                long seed = baseSeed + i;
+                executor.execute(() -> play(seed));
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * @return the latency of every action played so far
+     */
+    public LatencyHistogram getActionLatency() {
+        return actionLatency;
+    }
+
+    /**
+     * @return the number of actions played so far
+     */
+    public long getActionCount() {
+        return actions.sum();
+    }
+
+    /**
+     * @return the number of sessions whose sides met
+     */
+    public long getSolvedCount() {
+        return solved.sum();
+    }
+
+    /**
+     * Plays one session to a match or to the end of its actions.
+     * @param seed the challenge seed
+     */
+    private void play(long seed) {
+        GameSession session = new GameSession(new Challenge(seed), depth, Challenge.FIRST_COLUMN_COUNT,
+            ChainSolver.DEFAULT_COUNT_PER_BASE, ChainSolver.DEFAULT_ADDITIONAL_CHARS, new ExpansionCache());
+        RandomGenerator rng = RandomSource.forStream(seed, PLAYER_STREAM);
+        for (int a = 0; a < actionsPerSession && !session.isSolved(); a++) {
+            ColumnPipeline.Side side = rng.nextBoolean() ? ColumnPipeline.Side.LEFT : ColumnPipeline.Side.RIGHT;
+            int column = rng.nextInt(RandomPlayer.filledColumns(k -> session.getColumn(side, k), depth));
+            long[] picked = RandomPlayer.pick(session.getColumn(side, column), rng);
+
+            long start = System.nanoTime();
+            session.select(side, column, picked);
+            session.findMatch();
+            actionLatency.recordSince(start);
+            actions.increment();
+
+            pause();
+        }
+        if (session.isSolved()) {
+            solved.increment();
+        }
+    }
+
+    /**
+     * Lets other players run between actions: sleeps for the think time, or
+     * yields the carrier thread when there is none.
+     */
+    private void pause() {
+        if (thinkMillis == 0) {
+            Thread.yield();
+            return;
+        }
+        try {
+            Thread.sleep(thinkMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the number of carrier threads virtual threads are scheduled on
+     */
+    private static int carrierThreads() {
+        String parallelism = System.getProperty("jdk.virtualThreadScheduler.parallelism");
+        return parallelism != null ? Integer.parseInt(parallelism) : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Command line mode: plays a batch of sessions and prints the action
+     * latency and session throughput.
+     * Arguments (all optional): sessions, actionsPerSession, thinkMillis,
+     * depth, and a comma-separated list of core counts to repeat the run with.
+     * @param args command line arguments
+     */
+    public static void runCli(String[] args) {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SESSIONS;
+        int actions = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ACTIONS;
+        long thinkMillis = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : GUI.DEFAULT_DEPTH;
+        if (args.length > 4) {
+            List<Integer> coreCounts = new ArrayList<>();
+            for (String cores : args[4].split(",")) {
+                coreCounts.add(Integer.parseInt(cores.trim()));
+            }
+            runPerCoreCount(coreCounts, args[0], args[1], args[2], args[3]);
+            return;
+        }
+
+        LoadSimulator simulator = new LoadSimulator(sessions, actions, thinkMillis, depth);
+        // A short warm-up so the timed run measures compiled code
+        new LoadSimulator(Math.min(sessions, 1_000), actions, 0, depth).run(-1_000);
+        long nanos = simulator.run(0);
+        double seconds = nanos / 1e9;
+
+        System.out.printf("Sessions: %d (actions<=%d, think=%dms, depth=%d, carriers=%d)%n",
+            sessions, actions, thinkMillis, depth, carrierThreads());
+        System.out.printf("Solved: %d (%.2f%%)%n", simulator.getSolvedCount(),
+            sessions == 0 ? 0.0 : 100.0 * simulator.getSolvedCount() / sessions);
+        System.out.printf("Throughput: %.0f sessions/s, %.0f actions/s (%.3f s total)%n",
+            sessions / seconds, simulator.getActionCount() / seconds, seconds);
+        System.out.println("Latency: " + simulator.getActionLatency());
+    }
+
+    /**
+     * Repeats the simulation in a child JVM per core count. The scheduler's
+     * parallelism can only be set when a JVM starts, so each count needs a
+     * JVM of its own. Children get this JVM's options, such as the metrics
+     * flag and heap settings, so their runs compare with an in-process run.
+     * @param coreCounts the core counts to run with
+     * @param simulationArgs the sessions, actions, think time and depth arguments
+     */
+    private static void runPerCoreCount(List<Integer> coreCounts, String... simulationArgs) {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        for (int cores : coreCounts) {
+            if (cores <= 0) {
+                throw new IllegalArgumentException("Core counts must be positive");
+            }
+            // The parent's JVM options and -D flags come first, so the core settings below override theirs
+            List<String> command = new ArrayList<>();
+            command.add(java);
+            command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+            command.addAll(List.of(
+                "-XX:ActiveProcessorCount=" + cores,
+                "-Djdk.virtualThreadScheduler.parallelism=" + cores,
+                "-cp", System.getProperty("java.class.path"),
+                "Main", "--simulate"));
+            command.addAll(List.of(simulationArgs));
+
+            System.out.println("== " + cores + (cores == 1 ? " core" : " cores") + " ==");
+            try {
+                int status = new ProcessBuilder(command).inheritIO().start().waitFor();
+                if (status != 0) {
+                    System.err.println("Simulation with " + cores + " cores exited with status " + status);
+                }
+            } catch (IOException e) {
+                System.err.println("Could not start simulation: " + e.getMessage());
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+import java.util.Arrays;
+
+/**
+ * A set of primitive longs using open addressing with linear probing.
+ * Keys are also kept in insertion order so they can be handed out as a
+ * contiguous array without boxing. Zero is stored out of band because it
+ * marks empty slots in the table.
+ */
+public class LongHashSet {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] table;
+    private long[] keys;
+    private int size;
+    private boolean containsZero;
+
+    /**
+     * Creates an empty set with room for a default number of keys.
+     */
+    public LongHashSet() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty set that can hold the given number of keys without resizing.
+     * @param expectedSize the expected number of keys
+     * @throws IllegalArgumentException if expectedSize is negative
+     */
+    public LongHashSet(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size cannot be negative");
+        }
+        table = new long[tableSizeFor(expectedSize)];
+        keys = new long[Math.max(expectedSize, 4)];
+    }
+
+    /**
+     * Adds a key to the set.
+     * @param key the key to add
+     * @return true if the key was not already present
+     */
+    public boolean add(long key) {
+        if (key == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+        } else {
+            int mask = table.length - 1;
+            int slot = mix(key) & mask;
+            while (table[slot] != 0) {
+                if (table[slot] == key) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = key;
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+        }
+        keys[size++] = key;
+        if (size > table.length * LOAD_FACTOR) {
+            rehash(table.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Adds every key of another set, in that set's insertion order.
+     * @param other the set to merge into this one
+     * @return the number of keys that were not already present
+     */
+    public int addAll(LongHashSet other) {
+        int added = 0;
+        for (int i = 0; i < other.size; i++) {
+            if (add(other.keys[i])) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Checks whether a key is in the set.
+     * @param key the key to look up
+     * @return true if the key is present
+     */
+    public boolean contains(long key) {
+        if (key == 0) {
+            return containsZero;
+        }
+        int mask = table.length - 1;
+        int slot = mix(key) & mask;
+        while (table[slot] != 0) {
+            if (table[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of keys in the set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the set has no keys
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the key at a position in insertion order.
+     * @param index position, 0 to size-1
+     * @return the key
+     */
+    public long get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return keys[index];
+    }
+
+    /**
+     * Removes all keys, keeping the allocated capacity.
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+        size = 0;
+        containsZero = false;
+    }
+
+    /**
+     * @return a copy of the keys in insertion order
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(keys, size);
+    }
+
+    /**
+     * Grows the table and reinserts every key.
+     * @param newLength the new table length (a power of two)
+     */
+    private void rehash(int newLength) {
+        table = new long[newLength];
+        int mask = newLength - 1;
+        for (int i = 0; i < size; i++) {
+            long key = keys[i];
+            if (key == 0) {
+                continue;
+            }
+            int slot = mix(key) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = key;
+        }
+    }
+
+    /**
+     * Returns a power-of-two table length that keeps the load under LOAD_FACTOR.
+     * @param expectedSize the expected number of keys
+     * @return the table length
+     */
+    private static int tableSizeFor(int expectedSize) {
+        int needed = (int) Math.ceil(Math.max(expectedSize, 4) / LOAD_FACTOR) + 1;
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    /**
+     * Spreads the bits of a key so that packed keys with similar low bits
+     * land in different slots. Shared by the other open-addressing tables
+     * so that they all probe the same way.
+     * @param key the key
+     * @return the mixed hash
+     */
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
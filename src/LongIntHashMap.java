@@ -0,0 +1,240 @@
+import java.util.Arrays;
+
+/**
+ * A map from primitive longs to ints using open addressing with linear
+ * probing. Unlike {@link LongHashSet} it supports removal: a removed key
+ * leaves a tombstone so later keys in the same probe run stay reachable, and
+ * the table is rebuilt once live keys and tombstones together fill it past
+ * the load factor. Every operation touches O(1) slots on average, so a batch
+ * of updates costs time proportional to the batch, not to the map.
+ */
+public class LongIntHashMap {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    // Slot states
+    private static final byte EMPTY = 0;
+    private static final byte LIVE = 1;
+    private static final byte REMOVED = 2;
+
+    /**
+     * Receives the entries of a map.
+     */
+    public interface EntryVisitor {
+        /**
+         * Called once per entry.
+         * @param key the key
+         * @param value the value
+         */
+        void visit(long key, int value);
+    }
+
+    private long[] keys;
+    private int[] values;
+    private byte[] states;
+    private int size;
+    private int used;
+
+    /**
+     * Creates an empty map with room for a default number of keys.
+     */
+    public LongIntHashMap() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty map that can hold the given number of keys without resizing.
+     * @param expectedSize the expected number of keys
+     * @throws IllegalArgumentException if expectedSize is negative
+     */
+    public LongIntHashMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size cannot be negative");
+        }
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Adds a key with a value unless the key is already present.
+     * @param key the key
+     * @param value the value to store for a new key
+     * @return true if the key was added, false if it was already present
+     */
+    public boolean putIfAbsent(long key, int value) {
+        int mask = keys.length - 1;
+        int slot = LongHashSet.mix(key) & mask;
+        int firstFree = -1;
+        while (states[slot] != EMPTY) {
+            if (states[slot] == LIVE) {
+                if (keys[slot] == key) {
+                    return false;
+                }
+            } else if (firstFree < 0) {
+                firstFree = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (firstFree < 0) {
+            firstFree = slot;
+            used++;
+        }
+        keys[firstFree] = key;
+        values[firstFree] = value;
+        states[firstFree] = LIVE;
+        size++;
+        if (used > keys.length * LOAD_FACTOR) {
+            // Grow only if live keys need it; otherwise just sweep the tombstones
+            rehash(size > keys.length * LOAD_FACTOR / 2 ? keys.length * 2 : keys.length);
+        }
+        return true;
+    }
+
+    /**
+     * Adds to the value of a key, starting from 0 if the key is absent.
+     * @param key the key
+     * @param delta the amount to add
+     * @return the new value
+     */
+    public int addTo(long key, int delta) {
+        int slot = find(key);
+        if (slot < 0) {
+            putIfAbsent(key, delta);
+            return delta;
+        }
+        values[slot] += delta;
+        return values[slot];
+    }
+
+    /**
+     * Looks up the value of a key.
+     * @param key the key
+     * @param missing the value to return if the key is absent
+     * @return the value, or missing
+     */
+    public int get(long key, int missing) {
+        int slot = find(key);
+        return slot < 0 ? missing : values[slot];
+    }
+
+    /**
+     * @param key the key
+     * @return true if the key is present
+     */
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Removes a key.
+     * @param key the key
+     * @return true if the key was present
+     */
+    public boolean remove(long key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return false;
+        }
+        states[slot] = REMOVED;
+        size--;
+        return true;
+    }
+
+    /**
+     * @return the number of keys in the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the map has no keys
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all keys, keeping the allocated capacity.
+     */
+    public void clear() {
+        Arrays.fill(states, EMPTY);
+        size = 0;
+        used = 0;
+    }
+
+    /**
+     * Visits every entry, in no particular order.
+     * @param visitor receives each key and value
+     */
+    public void forEach(EntryVisitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (states[i] == LIVE) {
+                visitor.visit(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Finds the slot of a live key.
+     * @param key the key
+     * @return the slot, or -1 if the key is absent
+     */
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = LongHashSet.mix(key) & mask;
+        while (states[slot] != EMPTY) {
+            if (states[slot] == LIVE && keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Allocates an empty table.
+     * @param length the table length (a power of two)
+     */
+    private void allocate(int length) {
+        keys = new long[length];
+        values = new int[length];
+        states = new byte[length];
+        size = 0;
+        used = 0;
+    }
+
+    /**
+     * Rebuilds the table without tombstones.
+     * @param newLength the new table length (a power of two)
+     */
+    private void rehash(int newLength) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        byte[] oldStates = states;
+        allocate(newLength);
+        int mask = newLength - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldStates[i] == LIVE) {
+                int slot = LongHashSet.mix(oldKeys[i]) & mask;
+                while (states[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                states[slot] = LIVE;
+                size++;
+                used++;
+            }
+        }
+    }
+
+    /**
+     * Returns a power-of-two table length that keeps the load under LOAD_FACTOR.
+     * @param expectedSize the expected number of keys
+     * @return the table length
+     */
+    private static int tableSizeFor(int expectedSize) {
+        int needed = (int) Math.ceil(Math.max(expectedSize, 4) / LOAD_FACTOR) + 1;
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+}
@@ -1,5 +1,9 @@
 import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.random.RandomGenerator;
 
 /**
  * Main entry point for The Wiki Game application.
@@ -8,25 +12,95 @@ import java.util.*;
  */
 public class Main {
 
-    private static final Random random = new Random();
-
     /**
-     * Launches the GUI application.
-     * @param args command line arguments (not used)
+     * Launches the GUI application, or the headless solver when the first
+     * argument is {@code --solve}.
+     * @param args command line arguments; {@code --solve [challenges] [countPerBase]
+     *             [additionalChars] [maxDepth]} runs a batch of challenges without the GUI,
+     *             {@code --simulate [sessions] [actions] [thinkMillis] [depth] [cores,...]}
+     *             plays many concurrent sessions headlessly and prints their latency,
+     *             {@code --graph <titles> <edges> <from> <to> [depth] [linksPerPage]} looks
+     *             for a chain of real links in a local link dump,
+     *             {@code --server [port] [loops] [depth]} serves games over the network,
+     *             {@code --loadgen [port] [connections] [pipeline] [seconds]} measures a server,
+     *             {@code --log-stats [file]} prints statistics from the challenge log,
+     *             {@code --seed <seed>} opens the GUI on the challenge with that seed,
+     *             and {@code --depth <columns>} sets the number of columns per side
      */
     public static void main(String[] args) {
+        Metrics.registerMBean();
+        if (args.length > 0 && args[0].equals("--solve")) {
+            ChainSolver.runCli(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--simulate")) {
+            LoadSimulator.runCli(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--graph")) {
+            LinkGraph.runCli(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--server")) {
+            GameServer.runCli(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--loadgen")) {
+            GameLoadGenerator.runCli(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--log-stats")) {
+            printLogStats(args.length > 1 ? Paths.get(args[1]) : ChallengeLog.defaultPath());
+            return;
+        }
+        Long seed = null;
+        int depth = GUI.DEFAULT_DEPTH;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--seed")) {
+                seed = Long.valueOf(args[i + 1]);
+            } else if (args[i].equals("--depth")) {
+                depth = Integer.parseInt(args[i + 1]);
+            }
+        }
+        Long challengeSeed = seed;
+        int columns = depth;
         SwingUtilities.invokeLater(() -> {
-            GUI frame = new GUI();
+            GUI frame = new GUI(columns);
+            if (challengeSeed != null) {
+                frame.startChallenge(new Challenge(challengeSeed));
+            }
             frame.setVisible(true);
         });
     }
 
+    /**
+     * Prints solve-rate and solve-time statistics from a challenge log.
+     * @param path the log file
+     */
+    private static void printLogStats(Path path) {
+        try (ChallengeLog.Reader reader = new ChallengeLog.Reader(path)) {
+            System.out.println("Records: " + reader.size());
+            System.out.println(reader.summarize());
+        } catch (IOException e) {
+            System.err.println("Could not read challenge log: " + e.getMessage());
+        }
+    }
+
     /**
      * Generates a random uppercase letter.
      * @return a random uppercase letter from A to Z
      */
     public static char randomUpperCaseLetter() {
-        return (char) ('A' + random.nextInt(26));
+        return randomUpperCaseLetter(RandomSource.current());
+    }
+
+    /**
+     * Generates a random uppercase letter from the given generator.
+     * @param rng the generator to draw from
+     * @return a random uppercase letter from A to Z
+     */
+    public static char randomUpperCaseLetter(RandomGenerator rng) {
+        return (char) ('A' + rng.nextInt(26));
     }
 
     /**
@@ -34,19 +108,43 @@ public class Main {
      * @return a random lowercase letter from a to z
      */
     public static char randomLowerCaseLetter() {
-        return (char) ('a' + random.nextInt(26));
+        return randomLowerCaseLetter(RandomSource.current());
+    }
+
+    /**
+     * Generates a random lowercase letter from the given generator.
+     * @param rng the generator to draw from
+     * @return a random lowercase letter from a to z
+     */
+    public static char randomLowerCaseLetter(RandomGenerator rng) {
+        return (char) ('a' + rng.nextInt(26));
     }
 
     /**
      * Generates an array of random strings with a given prefix and number of additional characters.
-     * Duplicates are automatically removed.
-     * @param count the number of strings to generate (before duplicate removal)
+     * The strings are distinct; if fewer than count exist, all of them are returned.
+     * @param count the number of strings to generate
      * @param prefix the prefix for each string (cannot be null)
      * @param additionalChars the number of random characters to append
-     * @return array of unique strings
+     * @return array of exactly min(count, 26^additionalChars) unique strings
      * @throws IllegalArgumentException if count is negative or prefix is null
      */
     public static String[] generateRandomStrings(int count, String prefix, int additionalChars) {
+        return generateRandomStrings(count, prefix, additionalChars, RandomSource.current());
+    }
+
+    /**
+     * Generates an array of random strings using the given generator, so a
+     * seeded generator always produces the same strings.
+     * @param count the number of strings to generate
+     * @param prefix the prefix for each string (cannot be null)
+     * @param additionalChars the number of random characters to append
+     * @param rng the generator to draw letters from
+     * @return array of exactly min(count, 26^additionalChars) unique strings
+     * @throws IllegalArgumentException if count is negative or prefix is null
+     */
+    public static String[] generateRandomStrings(int count, String prefix, int additionalChars,
+                                                 RandomGenerator rng) {
         if (count < 0) {
             throw new IllegalArgumentException("Count cannot be negative");
         }
@@ -57,24 +155,20 @@ public class Main {
             throw new IllegalArgumentException("Additional characters cannot be negative");
         }
 
-        Set<String> uniqueStrings = new HashSet<>();
         boolean isUpperCase = !prefix.isEmpty() && Character.isUpperCase(prefix.charAt(0));
+        char firstLetter = isUpperCase ? 'A' : 'a';
 
-        // Generate strings until we have enough unique ones or hit a reasonable limit
-        int attempts = 0;
-        while (uniqueStrings.size() < count && attempts < count * 3) {
+        // Sample distinct letter runs directly instead of retrying on duplicates
+        long[] runs = LetterSampler.sample(rng, count, additionalChars);
+        String[] result = new String[runs.length];
+        for (int r = 0; r < runs.length; r++) {
             StringBuilder sb = new StringBuilder(prefix);
             for (int i = 0; i < additionalChars; i++) {
-                if (isUpperCase) {
-                    sb.append(randomUpperCaseLetter());
-                } else {
-                    sb.append(randomLowerCaseLetter());
-                }
+                sb.append((char) (firstLetter + LetterSampler.letterAt(runs[r], i, rng)));
             }
-            uniqueStrings.add(sb.toString());
-            attempts++;
+            result[r] = sb.toString();
         }
 
-        return uniqueStrings.toArray(new String[0]);
+        return result;
     }
 }
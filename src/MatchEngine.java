@@ -0,0 +1,243 @@
+import java.util.*;
+
+/**
+ * Finds the meeting points between the two innermost columns of the game.
+ * Both frontiers are kept in hash indexes, and the set of strings they share
+ * is kept up to date as they change: adding or removing a key probes only
+ * that key against the other side, so the cost of an update scales with the
+ * size of the change rather than with the size of the columns, and reading
+ * the matches costs nothing more than the matches themselves.
+ * <p>
+ * Frontiers are held as {@link PackedKey} values. Strings that cannot be
+ * packed are indexed separately and can only match each other, since packing
+ * is exact and no packed string equals an unpackable one.
+ */
+public class MatchEngine {
+
+    // Each side maps its items to the order they were added in
+    private final LongIntHashMap leftKeys = new LongIntHashMap();
+    private final LongIntHashMap rightKeys = new LongIntHashMap();
+    private final Map<String, Integer> leftOthers = new HashMap<>();
+    private final Set<String> rightOthers = new HashSet<>();
+    private int leftSequence;
+
+    // Items present on both sides, mapped to their position on the left
+    private final LongIntHashMap matchedKeys = new LongIntHashMap();
+    private final Map<String, Integer> matchedOthers = new HashMap<>();
+
+    /**
+     * Replaces the left frontier (the strings in the innermost left column).
+     * @param items the new left frontier, or null to clear it
+     */
+    public void setLeft(String[] items) {
+        clearLeft();
+        if (items != null) {
+            for (String item : items) {
+                if (PackedKey.canEncode(item)) {
+                    addLeftKey(PackedKey.encode(item));
+                } else if (item != null && !leftOthers.containsKey(item)) {
+                    leftOthers.put(item, leftSequence);
+                    if (rightOthers.contains(item)) {
+                        matchedOthers.put(item, leftSequence);
+                    }
+                    leftSequence++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the left frontier with packed keys.
+     * @param keys packed keys of the new left frontier
+     * @param count number of keys in the array that belong to the frontier
+     */
+    public void setLeft(long[] keys, int count) {
+        clearLeft();
+        addLeft(keys, 0, count);
+    }
+
+    /**
+     * Replaces the right frontier.
+     * @param items the new right frontier, or null to clear it
+     */
+    public void setRight(String[] items) {
+        clearRight();
+        if (items != null) {
+            for (String item : items) {
+                if (PackedKey.canEncode(item)) {
+                    addRightKey(PackedKey.encode(item));
+                } else if (item != null && rightOthers.add(item) && leftOthers.containsKey(item)) {
+                    matchedOthers.put(item, leftOthers.get(item));
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the right frontier with packed keys.
+     * @param keys packed keys of the new right frontier
+     * @param count number of keys in the array that belong to the frontier
+     */
+    public void setRight(long[] keys, int count) {
+        clearRight();
+        addRight(keys, 0, count);
+    }
+
+    /**
+     * Adds keys to the left frontier, probing each new key against the right.
+     * @param keys array holding the keys to add
+     * @param from index of the first key to add (inclusive)
+     * @param to index of the last key to add (exclusive)
+     */
+    public void addLeft(long[] keys, int from, int to) {
+        for (int i = from; i < to; i++) {
+            addLeftKey(keys[i]);
+        }
+    }
+
+    /**
+     * Removes keys from the left frontier, and from the matches.
+     * @param keys array holding the keys to remove
+     * @param from index of the first key to remove (inclusive)
+     * @param to index of the last key to remove (exclusive)
+     */
+    public void removeLeft(long[] keys, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (leftKeys.remove(keys[i])) {
+                matchedKeys.remove(keys[i]);
+            }
+        }
+    }
+
+    /**
+     * Adds keys to the right frontier, probing each new key against the left.
+     * @param keys array holding the keys to add
+     * @param from index of the first key to add (inclusive)
+     * @param to index of the last key to add (exclusive)
+     */
+    public void addRight(long[] keys, int from, int to) {
+        for (int i = from; i < to; i++) {
+            addRightKey(keys[i]);
+        }
+    }
+
+    /**
+     * Removes keys from the right frontier, and from the matches.
+     * @param keys array holding the keys to remove
+     * @param from index of the first key to remove (inclusive)
+     * @param to index of the last key to remove (exclusive)
+     */
+    public void removeRight(long[] keys, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (rightKeys.remove(keys[i])) {
+                matchedKeys.remove(keys[i]);
+            }
+        }
+    }
+
+    /**
+     * Empties the left frontier.
+     */
+    public void clearLeft() {
+        leftKeys.clear();
+        leftOthers.clear();
+        leftSequence = 0;
+        matchedKeys.clear();
+        matchedOthers.clear();
+    }
+
+    /**
+     * Empties the right frontier.
+     */
+    public void clearRight() {
+        rightKeys.clear();
+        rightOthers.clear();
+        matchedKeys.clear();
+        matchedOthers.clear();
+    }
+
+    /**
+     * Clears both frontiers.
+     */
+    public void clear() {
+        clearLeft();
+        clearRight();
+    }
+
+    /**
+     * Returns every string that appears in both frontiers, in the order they
+     * were added to the left frontier.
+     * @return list of meeting strings, empty if the frontiers do not meet
+     */
+    public List<String> findMatches() {
+        List<Map.Entry<String, Integer>> ordered = new ArrayList<>();
+        matchedKeys.forEach((key, position) -> ordered.add(Map.entry(PackedKey.decode(key), position)));
+        ordered.addAll(matchedOthers.entrySet());
+        ordered.sort(Map.Entry.comparingByValue());
+
+        List<String> matches = new ArrayList<>(ordered.size());
+        for (Map.Entry<String, Integer> entry : ordered) {
+            matches.add(entry.getKey());
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the first meeting string in left frontier order.
+     * @return the first meeting string, or null if the frontiers do not meet
+     */
+    public String findFirstMatch() {
+        if (matchedKeys.isEmpty() && matchedOthers.isEmpty()) {
+            return null;
+        }
+        long[] best = {0, Integer.MAX_VALUE};
+        matchedKeys.forEach((key, position) -> {
+            if (position < best[1]) {
+                best[0] = key;
+                best[1] = position;
+            }
+        });
+        String match = (best[1] == Integer.MAX_VALUE) ? null : PackedKey.decode(best[0]);
+        for (Map.Entry<String, Integer> entry : matchedOthers.entrySet()) {
+            if (entry.getValue() < best[1]) {
+                match = entry.getKey();
+                best[1] = entry.getValue();
+            }
+        }
+        return match;
+    }
+
+    /**
+     * @return the number of strings that appear in both frontiers
+     */
+    public int matchCount() {
+        return matchedKeys.size() + matchedOthers.size();
+    }
+
+    /**
+     * Adds one key to the left frontier and records it if the right has it.
+     * @param key the packed key
+     */
+    private void addLeftKey(long key) {
+        int position = leftSequence;
+        if (leftKeys.putIfAbsent(key, position)) {
+            leftSequence++;
+            if (rightKeys.containsKey(key)) {
+                matchedKeys.putIfAbsent(key, position);
+            }
+        }
+    }
+
+    /**
+     * Adds one key to the right frontier and records it if the left has it.
+     * @param key the packed key
+     */
+    private void addRightKey(long key) {
+        if (rightKeys.putIfAbsent(key, 0)) {
+            int position = leftKeys.get(key, -1);
+            if (position >= 0) {
+                matchedKeys.putIfAbsent(key, position);
+            }
+        }
+    }
+}
@@ -0,0 +1,274 @@
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for the hot paths: generating columns,
+ * populating lists and checking for a match, plus the challenge pool's
+ * refill and take counts.
+ * <p>
+ * Metrics are off unless the JVM is started with {@code -Dwikigame.metrics=true}.
+ * Every call site is guarded by the {@link #ENABLED} constant, which the JIT
+ * treats as a constant, so when metrics are off the instrumentation is
+ * compiled away and costs nothing beyond the bytecode. Solve times are the
+ * exception: they are recorded at human speed, so they are always kept.
+ */
+public final class Metrics {
+
+    /** True if metrics are collected; read once from the wikigame.metrics system property. */
+    public static final boolean ENABLED = Boolean.getBoolean("wikigame.metrics");
+
+    /** Name under which the MBean is registered. */
+    public static final String OBJECT_NAME = "WikiGame:type=Metrics";
+
+    /** Time to generate a column by appending characters. */
+    public static final LatencyHistogram APPEND = new LatencyHistogram("append");
+    /** Time to generate a column by prepending characters. */
+    public static final LatencyHistogram PREPEND = new LatencyHistogram("prepend");
+    /** Time to put new contents into a list. */
+    public static final LatencyHistogram POPULATE = new LatencyHistogram("populate");
+    /** Time to check the innermost columns for a match. */
+    public static final LatencyHistogram MATCH = new LatencyHistogram("match");
+    /** Time to apply a column's type-ahead filter. */
+    public static final LatencyHistogram FILTER = new LatencyHistogram("filter");
+    /** Time from the start of a challenge to its first chain; recorded even when metrics are off. */
+    public static final LatencyHistogram SOLVE = new LatencyHistogram("solve");
+
+    /** Number of items generated. */
+    public static final LongAdder GENERATED = new LongAdder();
+    /**
+     * Number of random draws that hit an index the sampler had already chosen
+     * for the same base. Floyd's algorithm takes the step's own index instead,
+     * so no draw is ever repeated; this counts those replacements.
+     */
+    public static final LongAdder SAMPLER_COLLISIONS = new LongAdder();
+    /** Number of generated items dropped because another base produced them too. */
+    public static final LongAdder DUPLICATES_DROPPED = new LongAdder();
+
+    /** Number of challenges taken ready-made from a {@link ChallengePool}. */
+    public static final LongAdder POOL_HITS = new LongAdder();
+    /** Number of times a challenge pool had nothing ready. */
+    public static final LongAdder POOL_MISSES = new LongAdder();
+    /** Number of challenges added to a challenge pool. */
+    public static final LongAdder POOL_REFILLS = new LongAdder();
+    /** Number of drawn challenges a pool discarded as unsolvable or out of range. */
+    public static final LongAdder POOL_REJECTED = new LongAdder();
+    /** Number of times a pool's producer found the pool full and had to wait. */
+    public static final LongAdder POOL_FULL_WAITS = new LongAdder();
+
+    // Private no-arg constructor to prevent attempts to instantiate this class.
+    private Metrics() {}
+
+    /**
+     * Registers the metrics MBean with the platform MBean server so the
+     * numbers can be read from JConsole or any other JMX client. Does nothing
+     * if metrics are disabled or the MBean is already registered.
+     */
+    public static synchronized void registerMBean() {
+        if (!ENABLED) {
+            return;
+        }
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    new StandardMBean(new Bean(), MetricsMXBean.class, true), name);
+            }
+        } catch (JMException e) {
+            System.err.println("Metrics MBean not registered: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Clears every counter and histogram.
+     */
+    public static void reset() {
+        APPEND.reset();
+        PREPEND.reset();
+        POPULATE.reset();
+        MATCH.reset();
+        FILTER.reset();
+        SOLVE.reset();
+        GENERATED.reset();
+        SAMPLER_COLLISIONS.reset();
+        DUPLICATES_DROPPED.reset();
+        POOL_HITS.reset();
+        POOL_MISSES.reset();
+        POOL_REFILLS.reset();
+        POOL_REJECTED.reset();
+        POOL_FULL_WAITS.reset();
+    }
+
+    /**
+     * Formats the median and 99th percentile of each histogram on one line,
+     * for the metrics overlay.
+     * @return a short summary of the metrics
+     */
+    public static String summary() {
+        return brief("gen+", APPEND) + "  " + brief("gen-", PREPEND) + "  " + brief("pop", POPULATE)
+            + "  " + brief("match", MATCH) + "  " + brief("filter", FILTER) + "  " + brief("solve", SOLVE)
+            + "  coll " + SAMPLER_COLLISIONS.sum() + "  pool " + POOL_HITS.sum() + "/" + POOL_MISSES.sum();
+    }
+
+    /**
+     * Formats one histogram for {@link #summary()}.
+     * @param label the label to show
+     * @param histogram the histogram
+     * @return the label followed by the median and 99th percentile
+     */
+    private static String brief(String label, LatencyHistogram histogram) {
+        return label + " " + LatencyHistogram.formatNanos(histogram.getPercentileNanos(50)) + "/"
+            + LatencyHistogram.formatNanos(histogram.getPercentileNanos(99));
+    }
+
+    /**
+     * Converts nanoseconds to whole microseconds.
+     * @param nanos a duration in nanoseconds
+     * @return the duration in microseconds
+     */
+    private static long micros(long nanos) {
+        return nanos / 1_000;
+    }
+
+    /**
+     * MBean view of the static metrics.
+     */
+    private static final class Bean implements MetricsMXBean {
+        @Override
+        public long getAppendCount() {
+            return APPEND.getCount();
+        }
+
+        @Override
+        public long getAppendP50Micros() {
+            return micros(APPEND.getPercentileNanos(50));
+        }
+
+        @Override
+        public long getAppendP99Micros() {
+            return micros(APPEND.getPercentileNanos(99));
+        }
+
+        @Override
+        public long getPrependCount() {
+            return PREPEND.getCount();
+        }
+
+        @Override
+        public long getPrependP50Micros() {
+            return micros(PREPEND.getPercentileNanos(50));
+        }
+
+        @Override
+        public long getPrependP99Micros() {
+            return micros(PREPEND.getPercentileNanos(99));
+        }
+
+        @Override
+        public long getPopulateCount() {
+            return POPULATE.getCount();
+        }
+
+        @Override
+        public long getPopulateP50Micros() {
+            return micros(POPULATE.getPercentileNanos(50));
+        }
+
+        @Override
+        public long getPopulateP99Micros() {
+            return micros(POPULATE.getPercentileNanos(99));
+        }
+
+        @Override
+        public long getMatchCount() {
+            return MATCH.getCount();
+        }
+
+        @Override
+        public long getMatchP50Micros() {
+            return micros(MATCH.getPercentileNanos(50));
+        }
+
+        @Override
+        public long getMatchP99Micros() {
+            return micros(MATCH.getPercentileNanos(99));
+        }
+
+        @Override
+        public long getFilterCount() {
+            return FILTER.getCount();
+        }
+
+        @Override
+        public long getFilterP50Micros() {
+            return micros(FILTER.getPercentileNanos(50));
+        }
+
+        @Override
+        public long getFilterP99Micros() {
+            return micros(FILTER.getPercentileNanos(99));
+        }
+
+        @Override
+        public long getSolveCount() {
+            return SOLVE.getCount();
+        }
+
+        @Override
+        public long getSolveP50Micros() {
+            return micros(SOLVE.getPercentileNanos(50));
+        }
+
+        @Override
+        public long getSolveP99Micros() {
+            return micros(SOLVE.getPercentileNanos(99));
+        }
+
+        @Override
+        public long getGeneratedItems() {
+            return GENERATED.sum();
+        }
+
+        @Override
+        public long getSamplerCollisions() {
+            return SAMPLER_COLLISIONS.sum();
+        }
+
+        @Override
+        public long getDuplicatesDropped() {
+            return DUPLICATES_DROPPED.sum();
+        }
+
+        @Override
+        public long getPoolHits() {
+            return POOL_HITS.sum();
+        }
+
+        @Override
+        public long getPoolMisses() {
+            return POOL_MISSES.sum();
+        }
+
+        @Override
+        public long getPoolRefills() {
+            return POOL_REFILLS.sum();
+        }
+
+        @Override
+        public long getPoolRejected() {
+            return POOL_REJECTED.sum();
+        }
+
+        @Override
+        public long getPoolFullWaits() {
+            return POOL_FULL_WAITS.sum();
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Management interface for the game's runtime metrics, registered as
+ * {@value Metrics#OBJECT_NAME} when metrics are enabled. Durations are in
+ * microseconds.
+ */
+public interface MetricsMXBean {
+
+    /**
+     * @return number of columns generated by appending characters
+     */
+    long getAppendCount();
+
+    /**
+     * @return median time to generate a column by appending characters
+     */
+    long getAppendP50Micros();
+
+    /**
+     * @return 99th percentile time to generate a column by appending characters
+     */
+    long getAppendP99Micros();
+
+    /**
+     * @return number of columns generated by prepending characters
+     */
+    long getPrependCount();
+
+    /**
+     * @return median time to generate a column by prepending characters
+     */
+    long getPrependP50Micros();
+
+    /**
+     * @return 99th percentile time to generate a column by prepending characters
+     */
+    long getPrependP99Micros();
+
+    /**
+     * @return number of times a list was populated
+     */
+    long getPopulateCount();
+
+    /**
+     * @return median time to populate a list
+     */
+    long getPopulateP50Micros();
+
+    /**
+     * @return 99th percentile time to populate a list
+     */
+    long getPopulateP99Micros();
+
+    /**
+     * @return number of match checks
+     */
+    long getMatchCount();
+
+    /**
+     * @return median time of a match check
+     */
+    long getMatchP50Micros();
+
+    /**
+     * @return 99th percentile time of a match check
+     */
+    long getMatchP99Micros();
+
+    /**
+     * @return number of times a column filter was applied
+     */
+    long getFilterCount();
+
+    /**
+     * @return median time to apply a column filter
+     */
+    long getFilterP50Micros();
+
+    /**
+     * @return 99th percentile time to apply a column filter
+     */
+    long getFilterP99Micros();
+
+    /**
+     * @return number of challenges solved
+     */
+    long getSolveCount();
+
+    /**
+     * @return median time from the start of a challenge to its solve
+     */
+    long getSolveP50Micros();
+
+    /**
+     * @return 99th percentile time from the start of a challenge to its solve
+     */
+    long getSolveP99Micros();
+
+    /**
+     * @return number of items generated
+     */
+    long getGeneratedItems();
+
+    /**
+     * @return number of random draws that hit an index already chosen for the
+     *         same base and were replaced by the step's own index
+     */
+    long getSamplerCollisions();
+
+    /**
+     * @return number of generated items dropped because another base produced them too
+     */
+    long getDuplicatesDropped();
+
+    /**
+     * @return number of challenges taken ready-made from a challenge pool
+     */
+    long getPoolHits();
+
+    /**
+     * @return number of times a challenge pool had nothing ready
+     */
+    long getPoolMisses();
+
+    /**
+     * @return number of challenges added to a challenge pool
+     */
+    long getPoolRefills();
+
+    /**
+     * @return number of drawn challenges a pool discarded as unsolvable or out of range
+     */
+    long getPoolRejected();
+
+    /**
+     * @return number of times a pool's producer found the pool full and had to wait
+     */
+    long getPoolFullWaits();
+
+    /**
+     * Clears every counter and histogram.
+     */
+    void reset();
+}
@@ -0,0 +1,230 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Packs short game strings into a single long so they can be generated,
+ * deduplicated and matched without allocating String objects.
+ * Each character takes 6 bits: 'A'..'Z' are codes 1..26 and 'a'..'z' are
+ * codes 27..52. The first character sits in the highest used bits, so
+ * appending a character is a shift and prepending one is an OR. Code 0 is
+ * never used for a character, which makes the length recoverable from the
+ * key itself and keeps every key non-negative.
+ */
+public final class PackedKey {
+
+    /** Bits used per character. */
+    public static final int BITS_PER_CHAR = 6;
+    /** Longest string that fits in a key. */
+    public static final int MAX_LENGTH = 10;
+    /** Number of letters in each case. */
+    public static final int ALPHABET_SIZE = 26;
+
+    private static final int CHAR_MASK = (1 << BITS_PER_CHAR) - 1;
+
+    // Private no-arg constructor to prevent attempts to instantiate this class.
+    private PackedKey() {}
+
+    /**
+     * Checks whether a string can be packed.
+     * @param s the string to check
+     * @return true if s is non-null, at most MAX_LENGTH characters and only letters A-Z/a-z
+     */
+    public static boolean canEncode(String s) {
+        if (s == null || s.length() > MAX_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (charCode(s.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Packs a string into a key.
+     * @param s the string to pack
+     * @return the packed key
+     * @throws IllegalArgumentException if the string cannot be packed
+     */
+    public static long encode(String s) {
+        if (!canEncode(s)) {
+            throw new IllegalArgumentException("Cannot pack string: " + s);
+        }
+        long key = 0;
+        for (int i = 0; i < s.length(); i++) {
+            key = (key << BITS_PER_CHAR) | charCode(s.charAt(i));
+        }
+        return key;
+    }
+
+    /**
+     * Packs a list of strings, skipping null and empty entries.
+     * @param strings the strings to pack
+     * @param extraChars number of characters that will be added to each key later
+     * @return the packed keys, or null if any string (plus extraChars) does not fit
+     */
+    public static long[] encodeAll(List<String> strings, int extraChars) {
+        long[] keys = new long[strings.size()];
+        int size = 0;
+        for (String s : strings) {
+            if (s == null || s.isEmpty()) {
+                continue;
+            }
+            if (s.length() + extraChars > MAX_LENGTH || !canEncode(s)) {
+                return null;
+            }
+            keys[size++] = encode(s);
+        }
+        return size == keys.length ? keys : Arrays.copyOf(keys, size);
+    }
+
+    /**
+     * Unpacks a key back into its string.
+     * @param key the packed key
+     * @return the string the key represents
+     */
+    public static String decode(long key) {
+        int length = length(key);
+        char[] chars = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            chars[i] = codeChar((int) (key & CHAR_MASK));
+            key >>>= BITS_PER_CHAR;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Unpacks the first size keys of an array.
+     * @param keys the packed keys
+     * @param size the number of keys to unpack
+     * @return array of strings
+     */
+    public static String[] decodeAll(long[] keys, int size) {
+        String[] result = new String[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = decode(keys[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of characters in a key.
+     * @param key the packed key
+     * @return the length of the string it represents
+     */
+    public static int length(long key) {
+        return (Long.SIZE - Long.numberOfLeadingZeros(key) + BITS_PER_CHAR - 1) / BITS_PER_CHAR;
+    }
+
+    /**
+     * Returns the code of the first character of a key.
+     * @param key the packed key (must not be empty)
+     * @return the character code, 1..52
+     */
+    public static int firstCode(long key) {
+        return (int) (key >>> (BITS_PER_CHAR * (length(key) - 1))) & CHAR_MASK;
+    }
+
+    /**
+     * Appends a character code to the end of a key.
+     * @param key the packed key
+     * @param code the character code to append
+     * @return the extended key
+     */
+    public static long append(long key, int code) {
+        return (key << BITS_PER_CHAR) | code;
+    }
+
+    /**
+     * Prepends a character code to the start of a key.
+     * @param key the packed key
+     * @param code the character code to prepend
+     * @return the extended key
+     */
+    public static long prepend(long key, int code) {
+        return key | ((long) code << (BITS_PER_CHAR * length(key)));
+    }
+
+    /**
+     * Removes characters from the end of a key.
+     * @param key the packed key
+     * @param count number of characters to remove (at most the length of the key)
+     * @return the key of the remaining prefix
+     */
+    public static long dropLast(long key, int count) {
+        return key >>> (BITS_PER_CHAR * count);
+    }
+
+    /**
+     * Removes characters from the start of a key.
+     * @param key the packed key
+     * @param count number of characters to remove (at most the length of the key)
+     * @return the key of the remaining suffix
+     */
+    public static long dropFirst(long key, int count) {
+        int keep = length(key) - count;
+        return keep <= 0 ? 0 : key & ((1L << (BITS_PER_CHAR * keep)) - 1);
+    }
+
+    /**
+     * Joins two keys into the key of their concatenation.
+     * @param head the key of the first part
+     * @param tail the key of the second part
+     * @return the key of head followed by tail (the result must fit in a key)
+     */
+    public static long concat(long head, long tail) {
+        return (head << (BITS_PER_CHAR * length(tail))) | tail;
+    }
+
+    /**
+     * Returns the code of an uppercase letter.
+     * @param index letter index, 0 for 'A' to 25 for 'Z'
+     * @return the character code
+     */
+    public static int upperCode(int index) {
+        return 1 + index;
+    }
+
+    /**
+     * Returns the code of a lowercase letter.
+     * @param index letter index, 0 for 'a' to 25 for 'z'
+     * @return the character code
+     */
+    public static int lowerCode(int index) {
+        return 1 + ALPHABET_SIZE + index;
+    }
+
+    /**
+     * Checks whether a character code is an uppercase letter.
+     * @param code the character code
+     * @return true for 'A'..'Z'
+     */
+    public static boolean isUpperCode(int code) {
+        return code >= 1 && code <= ALPHABET_SIZE;
+    }
+
+    /**
+     * Maps a character to its code.
+     * @param c the character
+     * @return the code, or -1 if the character is not a letter A-Z/a-z
+     */
+    private static int charCode(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return upperCode(c - 'A');
+        }
+        if (c >= 'a' && c <= 'z') {
+            return lowerCode(c - 'a');
+        }
+        return -1;
+    }
+
+    /**
+     * Maps a code back to its character.
+     * @param code the character code
+     * @return the character
+     */
+    private static char codeChar(int code) {
+        return isUpperCode(code) ? (char) ('A' + code - 1) : (char) ('a' + code - 1 - ALPHABET_SIZE);
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.random.RandomGenerator;
+
+/**
+ * The moves of a simulated player, shared by {@link LoadSimulator}, which
+ * plays sessions in-process, and {@link GameLoadGenerator}, which plays them
+ * over the network: which columns can be selected in, and which items of a
+ * column to select.
+ */
+final class RandomPlayer {
+
+    /** Most items a player selects in one move. */
+    static final int MAX_PICKS = 3;
+
+    private RandomPlayer() {
+    }
+
+    /**
+     * Counts the columns of a side that have items, which are always the
+     * outermost ones.
+     * @param column returns the keys of a column of the side, by index
+     * @param depth number of columns per side
+     * @return the number of non-empty columns, at least 1
+     */
+    static int filledColumns(IntFunction<long[]> column, int depth) {
+        int filled = 1;
+        while (filled < depth && column.apply(filled).length > 0) {
+            filled++;
+        }
+        return filled;
+    }
+
+    /**
+     * Picks between 1 and MAX_PICKS distinct items of a column, as a player would.
+     * @param column the keys of the column (not modified)
+     * @param rng the player's generator
+     * @return the picked keys
+     */
+    static long[] pick(long[] column, RandomGenerator rng) {
+        long[] pool = column.clone();
+        int count = Math.min(pool.length, 1 + rng.nextInt(MAX_PICKS));
+        for (int i = 0; i < count; i++) {
+            int j = i + rng.nextInt(pool.length - i);
+            long swap = pool[i];
+            pool[i] = pool[j];
+            pool[j] = swap;
+        }
+        return Arrays.copyOf(pool, count);
+    }
+}
@@ -0,0 +1,69 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Creates the random number generators used by the game.
+ * Nothing here is shared between threads: unseeded work draws from the
+ * calling thread's ThreadLocalRandom, and seeded work gets its own
+ * SplittableRandom derived from a challenge seed and a stream key. Because a
+ * derived stream depends only on its seed and key, the same seed always
+ * produces the same letters no matter which thread, or in which order,
+ * the work runs.
+ */
+public final class RandomSource {
+
+    // Odd constant from the golden ratio, as used by SplittableRandom
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    // Private no-arg constructor to prevent attempts to instantiate this class.
+    private RandomSource() {}
+
+    /**
+     * Picks a fresh seed for a new challenge.
+     * @return a random seed
+     */
+    public static long newSeed() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    /**
+     * Returns the generator for unseeded work on the calling thread.
+     * @return the current thread's generator (never contended)
+     */
+    public static RandomGenerator current() {
+        return ThreadLocalRandom.current();
+    }
+
+    /**
+     * Creates a generator for a seed.
+     * @param seed the seed
+     * @return a new generator that replays the same sequence for the same seed
+     */
+    public static RandomGenerator forSeed(long seed) {
+        return new SplittableRandom(seed);
+    }
+
+    /**
+     * Creates an independent generator for one stream of a seed, such as the
+     * expansion of a single base string.
+     * @param seed the challenge seed
+     * @param streamKey identifies the stream within the challenge
+     * @return a new generator determined only by seed and streamKey
+     */
+    public static RandomGenerator forStream(long seed, long streamKey) {
+        return new SplittableRandom(mix64(seed + GOLDEN_GAMMA * (streamKey + 1)));
+    }
+
+    /**
+     * Scrambles the bits of a value (the SplitMix64 finalizer), so that
+     * nearby stream keys give unrelated seeds.
+     * @param z the value to mix
+     * @return the mixed value
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
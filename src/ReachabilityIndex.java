@@ -0,0 +1,266 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Precomputed chance that a challenge can be solved under one set of
+ * expansion settings.
+ * <p>
+ * The meeting strings of a challenge are the strings of length
+ * 1 + depth * additionalChars that begin with the start letter and end with
+ * the end letter; their number follows directly from the settings. The
+ * letters are only labels: left strings always start with the start letter,
+ * right strings always end with the end letter, and every other letter is
+ * drawn uniformly, so the chance of a match is the same for every pair of
+ * distinct letters. Whether the innermost columns actually share a string
+ * depends on the random expansion, so that one probability is estimated by
+ * playing seeded trials, pooled over all letter pairs, with every item
+ * selected, which is the best a player can do. The trials are seeded
+ * deterministically, so an index built for some settings is always the same
+ * and can be cached on disk.
+ * <p>
+ * A trial generates every column, and each column is countPerBase times
+ * larger than the one before, so {@link #trialsFor} spends a fixed budget of
+ * generated keys rather than a fixed number of trials: shallow games get
+ * {@link #DEFAULT_TRIALS}, deep ones fewer trials and a coarser estimate.
+ */
+public class ReachabilityIndex {
+
+    /** Default number of trials; the estimate's standard error is then at most 0.8 percentage points. */
+    public static final int DEFAULT_TRIALS = 4096;
+    /** Fewest trials {@link #trialsFor} asks for, however deep the game. */
+    public static final int MIN_TRIALS = 16;
+
+    // Keys the trials chosen by trialsFor generate in total, about two seconds of work
+    private static final long TRIAL_KEY_BUDGET = 1L << 25;
+
+    private static final int LETTERS = 26;
+    private static final int MAGIC = 0x57475249; // "WGRI"
+    private static final int VERSION = 2;
+
+    private final int firstColumnCount;
+    private final int countPerBase;
+    private final int additionalChars;
+    private final int depth;
+    private final int trials;
+    private final double probability;
+
+    /**
+     * Builds an index by running the trials.
+     * @param firstColumnCount number of items in the first column on each side
+     * @param countPerBase number of items generated per item of the previous column
+     * @param additionalChars number of characters added per column
+     * @param depth number of columns per side; matches are looked for between the innermost ones
+     * @param trials number of trials
+     * @return the new index
+     * @throws IllegalArgumentException if any setting is not positive or the strings would not fit in a packed key
+     */
+    public static ReachabilityIndex build(int firstColumnCount, int countPerBase, int additionalChars,
+                                          int depth, int trials) {
+        if (firstColumnCount <= 0 || countPerBase <= 0 || additionalChars <= 0 || depth <= 0 || trials <= 0) {
+            throw new IllegalArgumentException("Settings must be positive");
+        }
+        if (1 + (long) depth * additionalChars > PackedKey.MAX_LENGTH) {
+            throw new IllegalArgumentException("Chains longer than " + PackedKey.MAX_LENGTH
+                + " characters are not supported");
+        }
+        int met = 0;
+        for (int t = 0; t < trials; t++) {
+            // Each seed draws its own letters, so the trials cover every pair
+            if (innermostColumnsMeet(new Challenge(t), firstColumnCount, countPerBase, additionalChars, depth)) {
+                met++;
+            }
+        }
+        return new ReachabilityIndex(firstColumnCount, countPerBase, additionalChars, depth, trials,
+            (double) met / trials);
+    }
+
+    /**
+     * Returns the number of trials that fits the key budget: DEFAULT_TRIALS
+     * for shallow games, fewer as every extra column multiplies the work of a
+     * trial by countPerBase, but never fewer than MIN_TRIALS.
+     * @param firstColumnCount number of items in the first column on each side
+     * @param countPerBase number of items generated per item of the previous column
+     * @param depth number of columns per side
+     * @return the number of trials to run
+     * @throws IllegalArgumentException if any setting is not positive
+     */
+    public static int trialsFor(int firstColumnCount, int countPerBase, int depth) {
+        if (firstColumnCount <= 0 || countPerBase <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("Settings must be positive");
+        }
+        // Keys one trial generates: every column of both sides
+        long keysPerTrial = 0;
+        long column = firstColumnCount;
+        for (int d = 0; d < depth && keysPerTrial <= TRIAL_KEY_BUDGET; d++) {
+            keysPerTrial += 2 * column;
+            column *= countPerBase;
+        }
+        return (int) Math.max(MIN_TRIALS, Math.min(DEFAULT_TRIALS, TRIAL_KEY_BUDGET / keysPerTrial));
+    }
+
+    /**
+     * Loads the index for the given settings from the cache folder, or builds
+     * it and writes it there if it is missing or unreadable.
+     * @param cacheDir folder holding cached indexes
+     * @param firstColumnCount number of items in the first column on each side
+     * @param countPerBase number of items generated per item of the previous column
+     * @param additionalChars number of characters added per column
+     * @param depth number of columns per side
+     * @param trials number of trials
+     * @return the index
+     */
+    public static ReachabilityIndex loadOrBuild(Path cacheDir, int firstColumnCount, int countPerBase,
+                                                int additionalChars, int depth, int trials) {
+        Path file = cacheDir.resolve(String.format("reachability-%d-%d-%d-%d-%d.idx",
+            firstColumnCount, countPerBase, additionalChars, depth, trials));
+        if (Files.exists(file)) {
+            try {
+                ReachabilityIndex cached = read(file);
+                if (cached.matches(firstColumnCount, countPerBase, additionalChars, depth, trials)) {
+                    return cached;
+                }
+            } catch (IOException e) {
+                System.err.println("Rebuilding reachability index: " + e.getMessage());
+            }
+        }
+        ReachabilityIndex index = build(firstColumnCount, countPerBase, additionalChars, depth, trials);
+        try {
+            Files.createDirectories(cacheDir);
+            index.write(file);
+        } catch (IOException e) {
+            System.err.println("Could not cache reachability index: " + e.getMessage());
+        }
+        return index;
+    }
+
+    /**
+     * @return the default cache folder, the .wikigame folder of the user's home directory
+     */
+    public static Path defaultCacheDir() {
+        return Paths.get(System.getProperty("user.home"), ".wikigame");
+    }
+
+    private ReachabilityIndex(int firstColumnCount, int countPerBase, int additionalChars, int depth,
+                              int trials, double probability) {
+        this.firstColumnCount = firstColumnCount;
+        this.countPerBase = countPerBase;
+        this.additionalChars = additionalChars;
+        this.depth = depth;
+        this.trials = trials;
+        this.probability = probability;
+    }
+
+    /**
+     * Returns the number of strings the two sides could meet at. This is the
+     * same for every pair of distinct letters: the first and last letters are
+     * fixed and the ones in between are free.
+     * @return 26^(depth * additionalChars - 1)
+     */
+    public double getMeetingSpaceSize() {
+        return Math.pow(LETTERS, depth * additionalChars - 1);
+    }
+
+    /**
+     * Returns the estimated chance that the innermost columns share a string
+     * when every item is selected. It is the same for every challenge with
+     * these settings, whatever its letters.
+     * @return the probability, 0 to 1
+     */
+    public double getMatchProbability() {
+        return probability;
+    }
+
+    /**
+     * @return the number of trials the estimate is based on
+     */
+    public int getTrials() {
+        return trials;
+    }
+
+    /**
+     * Expands both sides of a challenge to the given depth with every item
+     * selected and checks whether the innermost columns share a string.
+     * @param challenge the challenge to play
+     * @param firstColumnCount number of items in the first column on each side
+     * @param countPerBase number of items generated per item of the previous column
+     * @param additionalChars number of characters added per column
+     * @param depth number of columns per side
+     * @return true if the innermost columns meet
+     */
+    private static boolean innermostColumnsMeet(Challenge challenge, int firstColumnCount, int countPerBase,
+                                                int additionalChars, int depth) {
+        long seed = challenge.getSeed();
+        long[] left = challenge.firstLeftColumn(firstColumnCount, additionalChars);
+        long[] right = challenge.firstRightColumn(firstColumnCount, additionalChars);
+        for (int d = 1; d < depth; d++) {
+            left = ListCreator.appendRandomKeys(left, countPerBase, additionalChars, seed);
+            right = ListCreator.prependRandomKeys(right, countPerBase, additionalChars, seed);
+        }
+        LongHashSet rightIndex = new LongHashSet(right.length);
+        for (long key : right) {
+            rightIndex.add(key);
+        }
+        for (long key : left) {
+            if (rightIndex.contains(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether this index was built with the given settings.
+     * @param firstColumnCount number of items in the first column on each side
+     * @param countPerBase number of items generated per item of the previous column
+     * @param additionalChars number of characters added per column
+     * @param depth number of columns per side
+     * @param trials number of trials
+     * @return true if every setting is the same
+     */
+    private boolean matches(int firstColumnCount, int countPerBase, int additionalChars, int depth, int trials) {
+        return this.firstColumnCount == firstColumnCount && this.countPerBase == countPerBase
+            && this.additionalChars == additionalChars && this.depth == depth && this.trials == trials;
+    }
+
+    /**
+     * Writes the index to a file.
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    private void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(firstColumnCount);
+            out.writeInt(countPerBase);
+            out.writeInt(additionalChars);
+            out.writeInt(depth);
+            out.writeInt(trials);
+            out.writeDouble(probability);
+        }
+    }
+
+    /**
+     * Reads an index from a file.
+     * @param file the file to read
+     * @return the index
+     * @throws IOException if the file cannot be read or is not a reachability index
+     */
+    private static ReachabilityIndex read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a reachability index: " + file);
+            }
+            int firstColumnCount = in.readInt();
+            int countPerBase = in.readInt();
+            int additionalChars = in.readInt();
+            int depth = in.readInt();
+            int trials = in.readInt();
+            double probability = in.readDouble();
+            return new ReachabilityIndex(firstColumnCount, countPerBase, additionalChars, depth, trials,
+                probability);
+        }
+    }
+}
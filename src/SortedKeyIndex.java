@@ -0,0 +1,203 @@
+import java.util.Arrays;
+
+/**
+ * A sorted copy of a column's {@link PackedKey} values that answers
+ * "which items start with" (or "end with") a typed string by binary search.
+ * <p>
+ * Left columns grow at the end (see {@link ListCreator#appendRandomChars}),
+ * so they are searched by prefix; right columns grow at the start (see
+ * {@link ListCreator#prependRandomChars}), so they are searched by suffix.
+ * Each key is turned into a sort key once: its characters are moved to the
+ * top of the 60 usable bits (after reversing them for a suffix index), which
+ * makes numeric order the same as character order and puts every string
+ * sharing a prefix into one contiguous run. A query is then two binary
+ * searches, and the matching items are a range of {@link #keys()} that can be
+ * shown without copying. Matching is case-sensitive, like the game itself.
+ */
+public final class SortedKeyIndex {
+
+    private static final int KEY_BITS = PackedKey.BITS_PER_CHAR * PackedKey.MAX_LENGTH;
+    private static final long CHAR_MASK = (1L << PackedKey.BITS_PER_CHAR) - 1;
+
+    private final boolean suffix;
+
+    // Sort keys in ascending order, and the packed keys they came from in the same order
+    private final long[] sortKeys;
+    private final long[] keys;
+
+    /**
+     * Builds an index over the first count keys of an array.
+     * @param source packed keys of the column (not modified)
+     * @param count number of keys in the array to index
+     * @param suffix true to search by suffix, false to search by prefix
+     * @throws IllegalArgumentException if count is out of range for the array
+     */
+    private SortedKeyIndex(long[] source, int count, boolean suffix) {
+        if (source == null || count < 0 || count > source.length) {
+            throw new IllegalArgumentException("Invalid key count: " + count);
+        }
+        this.suffix = suffix;
+        sortKeys = new long[count];
+        for (int i = 0; i < count; i++) {
+            sortKeys[i] = sortKey(source[i], suffix);
+        }
+        Arrays.parallelSort(sortKeys);
+        keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = packedKey(sortKeys[i], suffix);
+        }
+    }
+
+    /**
+     * Builds an index for a left column, searched by prefix.
+     * @param source packed keys of the column (not modified)
+     * @param count number of keys in the array to index
+     * @return the index
+     */
+    public static SortedKeyIndex forPrefixes(long[] source, int count) {
+        return new SortedKeyIndex(source, count, false);
+    }
+
+    /**
+     * Builds an index for a right column, searched by suffix.
+     * @param source packed keys of the column (not modified)
+     * @param count number of keys in the array to index
+     * @return the index
+     */
+    public static SortedKeyIndex forSuffixes(long[] source, int count) {
+        return new SortedKeyIndex(source, count, true);
+    }
+
+    /**
+     * @return true if the index searches by suffix
+     */
+    public boolean isSuffixIndex() {
+        return suffix;
+    }
+
+    /**
+     * @return the number of indexed keys
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * @return the indexed packed keys in search order (not copied; do not modify)
+     */
+    public long[] keys() {
+        return keys;
+    }
+
+    /**
+     * Finds the first indexed key that matches a query.
+     * @param query the prefix (or suffix) to look for
+     * @return the index in {@link #keys()} of the first match; equal to
+     *         {@link #end} if nothing matches
+     */
+    public int first(String query) {
+        long low = queryKey(query);
+        return low < 0 ? keys.length : lowerBound(low);
+    }
+
+    /**
+     * Finds the end of the run of indexed keys that match a query.
+     * @param query the prefix (or suffix) to look for
+     * @return one past the index in {@link #keys()} of the last match
+     */
+    public int end(String query) {
+        long low = queryKey(query);
+        if (low < 0) {
+            return keys.length;
+        }
+        // Every string extending the query sorts at or below the query with all free bits set
+        long high = low | ((1L << (KEY_BITS - PackedKey.BITS_PER_CHAR * query.length())) - 1);
+        return lowerBound(high + 1);
+    }
+
+    /**
+     * Counts the indexed keys that match a query.
+     * @param query the prefix (or suffix) to look for
+     * @return the number of matches
+     */
+    public int count(String query) {
+        return end(query) - first(query);
+    }
+
+    /**
+     * Turns a query into the sort key of its smallest possible match.
+     * @param query the query
+     * @return the sort key, or -1 if no packed key can match the query
+     */
+    private long queryKey(String query) {
+        if (query == null || !PackedKey.canEncode(query)) {
+            return -1;
+        }
+        return sortKey(PackedKey.encode(query), suffix);
+    }
+
+    /**
+     * Binary search for the first sort key at or above a value.
+     * @param value the value to search for
+     * @return the index of the first sort key &gt;= value, or size() if there is none
+     */
+    private int lowerBound(long value) {
+        int low = 0;
+        int high = sortKeys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortKeys[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Moves a key's characters to the top of the key bits, reversing them first
+     * for a suffix index.
+     * @param key the packed key
+     * @param suffix true to reverse the characters
+     * @return the sort key
+     */
+    private static long sortKey(long key, boolean suffix) {
+        int length = PackedKey.length(key);
+        if (suffix) {
+            key = reverse(key, length);
+        }
+        return key << (KEY_BITS - PackedKey.BITS_PER_CHAR * length);
+    }
+
+    /**
+     * Recovers the packed key a sort key was made from. Character code 0 is
+     * never used, so the free bits at the bottom give the length back.
+     * @param sortKey the sort key
+     * @param suffix true if the characters were reversed
+     * @return the packed key
+     */
+    private static long packedKey(long sortKey, boolean suffix) {
+        if (sortKey == 0) {
+            return 0;
+        }
+        int freeChars = Long.numberOfTrailingZeros(sortKey) / PackedKey.BITS_PER_CHAR;
+        long key = sortKey >>> (PackedKey.BITS_PER_CHAR * freeChars);
+        return suffix ? reverse(key, PackedKey.MAX_LENGTH - freeChars) : key;
+    }
+
+    /**
+     * Reverses the order of a key's characters.
+     * @param key the packed key
+     * @param length the number of characters in the key
+     * @return the key of the reversed string
+     */
+    private static long reverse(long key, int length) {
+        long reversed = 0;
+        for (int i = 0; i < length; i++) {
+            reversed = (reversed << PackedKey.BITS_PER_CHAR) | (key & CHAR_MASK);
+            key >>>= PackedKey.BITS_PER_CHAR;
+        }
+        return reversed;
+    }
+}
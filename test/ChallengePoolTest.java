@@ -0,0 +1,162 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link ChallengePool}: the lock-free ring under concurrent
+ * consumers, the capacity bound, and the entries it hands out.
+ */
+public class ChallengePoolTest {
+
+    // Small settings that solve quickly
+    private static final int FIRST_COLUMN_COUNT = 10;
+    private static final int COUNT_PER_BASE = 5;
+    private static final int ADDITIONAL_CHARS = 1;
+    private static final int MIN_DEPTH = 1;
+    private static final int MAX_DEPTH = 3;
+
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    /**
+     * Creates a pool with the test settings.
+     * @param capacity the pool capacity
+     * @return the pool
+     */
+    private static ChallengePool newPool(int capacity) {
+        return new ChallengePool(capacity, FIRST_COLUMN_COUNT, COUNT_PER_BASE, ADDITIONAL_CHARS, MIN_DEPTH,
+            MAX_DEPTH);
+    }
+
+    @Test
+    public void concurrentPollsHandOutEachEntryOnce() throws InterruptedException {
+        int threads = 8;
+        int wanted = 200;
+        ConcurrentLinkedQueue<ChallengePool.Entry> taken = new ConcurrentLinkedQueue<>();
+        AtomicInteger remaining = new AtomicInteger(wanted);
+        CountDownLatch start = new CountDownLatch(1);
+
+        try (ChallengePool pool = newPool(16);
+             ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            long deadline = System.nanoTime() + TIMEOUT_NANOS;
+            for (int t = 0; t < threads; t++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    while (remaining.get() > 0 && System.nanoTime() < deadline) {
+                        ChallengePool.Entry entry = pool.poll();
+                        if (entry == null) {
+                            Thread.onSpinWait();
+                        } else {
+                            taken.add(entry);
+                            remaining.decrementAndGet();
+                        }
+                    }
+                });
+            }
+            start.countDown();
+        }
+
+        assertTrue(taken.size() >= wanted, "only " + taken.size() + " entries were taken in time");
+        Set<ChallengePool.Entry> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ChallengePool.Entry entry : taken) {
+            assertNotNull(entry);
+            assertTrue(distinct.add(entry), "an entry was handed out twice");
+        }
+    }
+
+    @Test
+    public void entriesAreSolvedWithinTheDepthRange() {
+        try (ChallengePool pool = newPool(4)) {
+            for (int i = 0; i < 20; i++) {
+                ChallengePool.Entry entry = pollWithin(pool);
+                ChainSolver.Result solution = entry.getSolution();
+                assertTrue(solution.isSolved());
+                assertTrue(solution.getDepth() >= MIN_DEPTH && solution.getDepth() <= MAX_DEPTH);
+                assertSame(entry.getChallenge(), solution.getChallenge());
+                assertArrayEquals(entry.getChallenge().firstLeftColumn(FIRST_COLUMN_COUNT, ADDITIONAL_CHARS),
+                    entry.getFirstLeftColumn());
+                assertArrayEquals(entry.getChallenge().firstRightColumn(FIRST_COLUMN_COUNT, ADDITIONAL_CHARS),
+                    entry.getFirstRightColumn());
+            }
+        }
+    }
+
+    @Test
+    public void fillsToCapacityAndNoFurther() throws InterruptedException {
+        try (ChallengePool pool = newPool(5)) {
+            assertEquals(8, pool.getCapacity());
+            long deadline = System.nanoTime() + TIMEOUT_NANOS;
+            while (pool.size() < pool.getCapacity() && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(pool.getCapacity(), pool.size());
+
+            // A full producer parks instead of overwriting slots
+            Thread.sleep(100);
+            assertEquals(pool.getCapacity(), pool.size());
+
+            // Draining refills: every poll frees a slot for the producer
+            for (int i = 0; i < 3 * pool.getCapacity(); i++) {
+                assertNotNull(pollWithin(pool));
+            }
+        }
+    }
+
+    @Test
+    public void closedPoolStillHandsOutWhatItHolds() throws InterruptedException {
+        ChallengePool pool = newPool(2);
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (pool.size() < pool.getCapacity() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        pool.close();
+        // Give a producer that was mid-draw time to see the flag and stop
+        Thread.sleep(200);
+        int held = pool.size();
+        for (int i = 0; i < held; i++) {
+            assertNotNull(pool.poll());
+        }
+        // The producer has stopped, so nothing comes back
+        Thread.sleep(50);
+        assertNull(pool.poll());
+    }
+
+    @Test
+    public void rejectsInvalidSettings() {
+        for (int[] settings : List.of(new int[]{0, 1, 2}, new int[]{4, 0, 2}, new int[]{4, 3, 2})) {
+            assertThrows(IllegalArgumentException.class, () -> new ChallengePool(settings[0], FIRST_COLUMN_COUNT,
+                COUNT_PER_BASE, ADDITIONAL_CHARS, settings[1], settings[2]));
+        }
+    }
+
+    /**
+     * Polls until an entry is ready, failing the test after the timeout.
+     * @param pool the pool to poll
+     * @return the entry
+     */
+    private static ChallengePool.Entry pollWithin(ChallengePool pool) {
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (System.nanoTime() < deadline) {
+            ChallengePool.Entry entry = pool.poll();
+            if (entry != null) {
+                return entry;
+            }
+            Thread.onSpinWait();
+        }
+        return fail("no entry became ready in time");
+    }
+}
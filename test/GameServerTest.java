@@ -0,0 +1,351 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link GameServer} over loopback: framing, pipelining, rejected
+ * requests, and back-pressure when the client does not read its answers.
+ * Games are started from a seed so every answer can be checked against a
+ * {@link GameSession} played locally with the same settings.
+ */
+public class GameServerTest {
+
+    private static final int DEPTH = 3;
+    private static final long SEED = 42;
+    private static final int TIMEOUT_MILLIS = 30_000;
+
+    private GameServer server;
+
+    /**
+     * A response frame.
+     * @param status the response status
+     * @param id the echoed request id
+     * @param payload the bytes after the header
+     */
+    private record Response(byte status, int id, ByteBuffer payload) {
+    }
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = new GameServer(0, 2, DEPTH);
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void newChallengeAndSelectMatchALocalGame() throws IOException {
+        GameSession local = localSession();
+        try (Socket socket = connect()) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+            // Send the first frame a byte at a time, so the server sees it arrive in pieces
+            for (byte b : newChallenge(1, SEED)) {
+                out.write(b);
+                out.flush();
+            }
+            Response started = read(in);
+            assertEquals(GameServer.STATUS_OK, started.status());
+            assertEquals(1, started.id());
+            ByteBuffer payload = started.payload();
+            assertEquals(SEED, payload.getLong());
+            assertEquals(local.getStartLetter(), payload.get());
+            assertEquals(local.getEndLetter(), payload.get());
+            assertEquals(DEPTH, payload.get());
+            assertArrayEquals(local.getColumn(ColumnPipeline.Side.LEFT, 0), keys(payload));
+            assertArrayEquals(local.getColumn(ColumnPipeline.Side.RIGHT, 0), keys(payload));
+            assertFalse(payload.hasRemaining());
+
+            long[] picked = Arrays.copyOf(local.getColumn(ColumnPipeline.Side.RIGHT, 0), 3);
+            out.write(select(2, ColumnPipeline.Side.RIGHT, 0, picked));
+            out.flush();
+            Response selected = read(in);
+            assertEquals(GameServer.STATUS_OK, selected.status());
+            assertEquals(2, selected.id());
+            assertEquals(local.select(ColumnPipeline.Side.RIGHT, 0, picked), selected.payload().getInt());
+            assertArrayEquals(local.getColumn(ColumnPipeline.Side.RIGHT, 1), keys(selected.payload()));
+        }
+    }
+
+    @Test
+    public void pipelinedRequestsAreAnsweredInOrder() throws IOException {
+        GameSession local = localSession();
+        long[] left = local.getColumn(ColumnPipeline.Side.LEFT, 0);
+        try (Socket socket = connect()) {
+            // Every request goes out in one write, before any answer is read
+            ByteArrayOutputStream requests = new ByteArrayOutputStream();
+            requests.write(newChallenge(100, SEED));
+            for (int i = 0; i < left.length; i++) {
+                requests.write(select(101 + i, ColumnPipeline.Side.LEFT, 0, new long[] {left[i]}));
+            }
+            requests.write(frame(GameServer.OP_MATCH, 200, new byte[0]));
+            socket.getOutputStream().write(requests.toByteArray());
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            assertEquals(100, read(in).id());
+            for (int i = 0; i < left.length; i++) {
+                Response response = read(in);
+                assertEquals(GameServer.STATUS_OK, response.status());
+                assertEquals(101 + i, response.id());
+                local.select(ColumnPipeline.Side.LEFT, 0, new long[] {left[i]});
+                assertEquals(1, response.payload().getInt());
+                assertArrayEquals(local.getColumn(ColumnPipeline.Side.LEFT, 1), keys(response.payload()));
+            }
+            Response match = read(in);
+            assertEquals(GameServer.STATUS_OK, match.status());
+            assertEquals(200, match.id());
+        }
+    }
+
+    @Test
+    public void rejectedRequestsAnswerWithAnErrorAndChangeNothing() throws IOException {
+        GameSession local = localSession();
+        long[] left = local.getColumn(ColumnPipeline.Side.LEFT, 0);
+        long[] right = local.getColumn(ColumnPipeline.Side.RIGHT, 0);
+        try (Socket socket = connect()) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+            out.write(select(1, ColumnPipeline.Side.LEFT, 0, new long[] {left[0]}));
+            out.flush();
+            assertError(read(in), 1, "No challenge started");
+
+            out.write(newChallenge(2, SEED));
+            out.write(select(3, ColumnPipeline.Side.LEFT, 0, new long[] {left[0]}));
+            out.flush();
+            read(in);
+            assertEquals(GameServer.STATUS_OK, read(in).status());
+            selectColumn(local, left[0]);
+
+            // A key of the right column does not belong on the left, and another column's key not in column 0
+            out.write(select(4, ColumnPipeline.Side.LEFT, 0, new long[] {left[1], right[0]}));
+            out.write(select(5, ColumnPipeline.Side.LEFT, 1, new long[] {left[1]}));
+            out.write(select(6, ColumnPipeline.Side.LEFT, DEPTH, new long[] {left[1]}));
+            out.flush();
+            assertError(read(in), 4, null);
+            assertError(read(in), 5, null);
+            assertError(read(in), 6, null);
+
+            // Column 1 is still the one the last accepted selection made, so its keys can be selected
+            long[] column1 = local.getColumn(ColumnPipeline.Side.LEFT, 1);
+            out.write(select(7, ColumnPipeline.Side.LEFT, 1, new long[] {column1[0]}));
+            out.flush();
+            Response selected = read(in);
+            assertEquals(GameServer.STATUS_OK, selected.status());
+            local.select(ColumnPipeline.Side.LEFT, 1, new long[] {column1[0]});
+            assertEquals(2, selected.payload().getInt());
+            assertArrayEquals(local.getColumn(ColumnPipeline.Side.LEFT, 2), keys(selected.payload()));
+        }
+    }
+
+    @Test
+    public void unknownRequestClosesTheConnection() throws IOException {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(frame((byte) 99, 1, new byte[0]));
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    @Test
+    public void largeFrameIsReadAndLaterFramesStillWork() throws IOException {
+        GameSession local = localSession();
+        long[] left = local.getColumn(ColumnPipeline.Side.LEFT, 0);
+        try (Socket socket = connect()) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out.write(newChallenge(1, SEED));
+
+            // Repeating one key makes a request larger than a pooled buffer but selects a single base
+            long[] repeated = new long[20_000];
+            Arrays.fill(repeated, left[0]);
+            out.write(select(2, ColumnPipeline.Side.LEFT, 0, repeated));
+            out.write(select(3, ColumnPipeline.Side.LEFT, 0, new long[] {left[1]}));
+            out.flush();
+
+            assertEquals(GameServer.STATUS_OK, read(in).status());
+            Response large = read(in);
+            assertEquals(2, large.id());
+            assertEquals(GameServer.STATUS_OK, large.status());
+            assertArrayEquals(selectColumn(local, left[0]), keys(skipInt(large.payload())));
+            Response small = read(in);
+            assertEquals(3, small.id());
+            assertArrayEquals(selectColumn(local, left[1]), keys(skipInt(small.payload())));
+        }
+    }
+
+    @Test
+    public void clientThatStopsReadingGetsEveryAnswerOnceItReads() throws Exception {
+        GameSession local = localSession();
+        long[] left = local.getColumn(ColumnPipeline.Side.LEFT, 0);
+        long[] expected = selectColumn(local, left);
+        int count = 5000;
+        try (Socket socket = connect()) {
+            // Far more answers than the server buffers for one client; a separate writer
+            // keeps sending while the server stops reading until the answers drain
+            AtomicReference<IOException> failure = new AtomicReference<>();
+            Thread writer = new Thread(() -> {
+                try {
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                    out.write(newChallenge(0, SEED));
+                    for (int i = 1; i <= count; i++) {
+                        out.write(select(i, ColumnPipeline.Side.LEFT, 0, left));
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    failure.set(e);
+                }
+            });
+            writer.start();
+            Thread.sleep(500);
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            assertEquals(0, read(in).id());
+            for (int i = 1; i <= count; i++) {
+                Response response = read(in);
+                assertEquals(i, response.id());
+                assertEquals(GameServer.STATUS_OK, response.status());
+                assertArrayEquals(expected, keys(skipInt(response.payload())));
+            }
+            writer.join(TIMEOUT_MILLIS);
+            assertNull(failure.get());
+        }
+    }
+
+    /**
+     * @return a game played locally with the server's settings and the test seed
+     */
+    private static GameSession localSession() {
+        return new GameSession(new Challenge(SEED), DEPTH, Challenge.FIRST_COLUMN_COUNT,
+            ChainSolver.DEFAULT_COUNT_PER_BASE, ChainSolver.DEFAULT_ADDITIONAL_CHARS, new ExpansionCache());
+    }
+
+    /**
+     * Returns the second left column that a selection in the first one leads to.
+     * @param local a local game, which is changed
+     * @param keys the keys to select in the first left column
+     * @return the keys of the second left column
+     */
+    private static long[] selectColumn(GameSession local, long... keys) {
+        local.select(ColumnPipeline.Side.LEFT, 0, keys);
+        return local.getColumn(ColumnPipeline.Side.LEFT, 1);
+    }
+
+    /**
+     * @return a blocking socket connected to the server
+     * @throws IOException if the connection fails
+     */
+    private Socket connect() throws IOException {
+        Socket socket = new Socket();
+        socket.connect(new InetSocketAddress("localhost", server.getPort()), TIMEOUT_MILLIS);
+        socket.setSoTimeout(TIMEOUT_MILLIS);
+        return socket;
+    }
+
+    /**
+     * Encodes a request frame.
+     * @param op the request code
+     * @param id the request id
+     * @param payload the payload bytes
+     * @return the frame
+     */
+    private static byte[] frame(byte op, int id, byte[] payload) {
+        return ByteBuffer.allocate(GameServer.HEADER_BYTES + payload.length)
+            .putInt(GameServer.HEADER_BYTES - 4 + payload.length).put(op).putInt(id).put(payload).array();
+    }
+
+    /**
+     * @param id the request id
+     * @param seed the challenge seed
+     * @return a frame starting a challenge from a seed
+     */
+    private static byte[] newChallenge(int id, long seed) {
+        return frame(GameServer.OP_NEW_CHALLENGE, id, ByteBuffer.allocate(9).put((byte) 1).putLong(seed).array());
+    }
+
+    /**
+     * @param id the request id
+     * @param side the side of the selection
+     * @param column the column index
+     * @param keys the packed keys to select
+     * @return a frame selecting the keys
+     */
+    private static byte[] select(int id, ColumnPipeline.Side side, int column, long[] keys) {
+        ByteBuffer payload = ByteBuffer.allocate(6 + 8 * keys.length)
+            .put((byte) side.ordinal()).put((byte) column).putInt(keys.length);
+        payload.asLongBuffer().put(keys);
+        return frame(GameServer.OP_SELECT, id, payload.array());
+    }
+
+    /**
+     * Reads one response frame.
+     * @param in the socket's input
+     * @return the response
+     * @throws IOException if the socket fails or closes mid-frame
+     */
+    private static Response read(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        byte status = in.readByte();
+        int id = in.readInt();
+        byte[] payload = new byte[length - (GameServer.HEADER_BYTES - 4)];
+        in.readFully(payload);
+        return new Response(status, id, ByteBuffer.wrap(payload));
+    }
+
+    /**
+     * Reads a count and that many packed keys.
+     * @param payload the payload, positioned at the count
+     * @return the keys
+     */
+    private static long[] keys(ByteBuffer payload) {
+        long[] keys = new long[payload.getInt()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = payload.getLong();
+        }
+        return keys;
+    }
+
+    /**
+     * Skips the changed-column index at the start of a select response.
+     * @param payload the payload
+     * @return the payload, positioned at the column's keys
+     */
+    private static ByteBuffer skipInt(ByteBuffer payload) {
+        payload.getInt();
+        return payload;
+    }
+
+    /**
+     * Checks that a response rejects its request.
+     * @param response the response
+     * @param id the expected request id
+     * @param message the expected message, or null to accept any
+     */
+    private static void assertError(Response response, int id, String message) {
+        assertEquals(GameServer.STATUS_ERROR, response.status());
+        assertEquals(id, response.id());
+        ByteBuffer payload = response.payload();
+        byte[] text = new byte[payload.getShort()];
+        payload.get(text);
+        if (message != null) {
+            assertEquals(message, new String(text, StandardCharsets.UTF_8));
+        }
+    }
+}